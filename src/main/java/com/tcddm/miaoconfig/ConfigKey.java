@@ -0,0 +1,67 @@
+package com.tcddm.miaoconfig;
+
+import java.util.function.Supplier;
+
+/**
+ * 预先解析好的配置句柄，绑定配置名、路径和类型
+ * 值在创建、配置重载和修改时转换好，get()只是一次volatile读取
+ * 通过 {@link MiaoConfigFactory#configKey(String, String, Class, Object)} 或 {@link MiaoGlobalConfig#key(String, Class, Object)} 获取
+ * @param <T> 值类型
+ */
+public final class ConfigKey<T> extends MiaoGlobalConfig.Key implements Supplier<T> {
+    private final String configName;
+    private final Class<T> type;
+    private final T defaultValue;
+    private volatile T value;
+
+    ConfigKey(String configName, String path, Class<T> type, T defaultValue) {
+        super(path);
+        this.configName = configName;
+        this.type = type;
+        this.defaultValue = defaultValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void refresh(MiaoConfigFileManager.MiaoConfigFile file) {
+        Object temp = read(file, type);
+        if (temp == null) {
+            value = defaultValue;
+            return;
+        }
+        //基本类型使用包装类转换
+        Class<?> wrapperType = TypeConverter.getWrapperType(type);
+        value = (T) (wrapperType != null ? wrapperType : type).cast(temp);
+    }
+
+    /**
+     * 获取当前值
+     * @return 配置值或默认值
+     */
+    @Override
+    public T get() {
+        return value;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public T getDefaultValue() {
+        return defaultValue;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigKey{" +
+                "configName=" + configName +
+                ", path=" + getPath() +
+                ", type=" + type.getSimpleName() +
+                ", value=" + value +
+                '}';
+    }
+}
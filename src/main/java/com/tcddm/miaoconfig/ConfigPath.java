@@ -0,0 +1,107 @@
+package com.tcddm.miaoconfig;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预先拆分好的配置路径（如 "a.b.c" -> {"a","b","c"}）
+ * 通过 {@link #of(String)} 获取，相同的路径字符串通常会复用同一个缓存的实例，查找时不再需要split
+ */
+public final class ConfigPath {
+    private static final String PATH_SEPARATOR = "\\.";
+    //缓存上限，达到后清空缓存重新开始，使缓存始终保留当前正在使用的路径
+    private static final int MAX_CACHE_SIZE = 4096;
+    //路径字符串 -> 编译后的路径
+    private static final Map<String, ConfigPath> CACHE = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final String[] keys;
+    //各级节点重新用"."拼接后的规范形式（如"a.b."与"a.b"的规范形式相同），用作扁平索引的键
+    private final String key;
+
+    private ConfigPath(String path) {
+        this.path = path;
+        String[] temp = path.split(PATH_SEPARATOR);
+        for (int i = 0; i < temp.length; i++) {
+            temp[i] = temp[i].intern();
+        }
+        this.keys = temp;
+        String joined = String.join(".", temp);
+        this.key = joined.equals(path) ? path : joined;
+    }
+
+    /**
+     * 获取编译后的路径
+     * @param path 路径（如"a.b.c"）
+     * @return 编译后的路径
+     */
+    public static ConfigPath of(String path) {
+        ConfigPath configPath = CACHE.get(path);
+        if (configPath != null) {
+            return configPath;
+        }
+        configPath = new ConfigPath(path);
+        if (CACHE.size() >= MAX_CACHE_SIZE) {
+            //路径按内容比较，清空后重新编译的实例与旧实例等价
+            CACHE.clear();
+        }
+        ConfigPath existing = CACHE.putIfAbsent(path, configPath);
+        return existing != null ? existing : configPath;
+    }
+
+    /**
+     * 获取原始路径字符串
+     * @return 路径
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * 获取规范形式的路径
+     * @return 规范路径
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 获取节点数量
+     * @return 节点数量
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * 获取第index级节点
+     * @param index 下标
+     * @return 节点名
+     */
+    public String get(int index) {
+        return keys[index];
+    }
+
+    //内部直接使用，避免复制
+    String[] keys() {
+        return keys;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ConfigPath)) return false;
+        return Arrays.equals(keys, ((ConfigPath) o).keys);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(keys);
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,222 @@
+package com.tcddm.miaoconfig;
+
+import com.tcddm.miaoconfig.annotation.MiaoConfig;
+import com.tcddm.miaoconfig.annotation.MiaoValue;
+import com.tcddm.miaoconfig.egg.MiaoLogger;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 配置类的字段绑定计划
+ * 每个类只解析一次（字段、访问器、路径、目标类型、一次性标记），之后的注入和保存直接复用，不再重复反射
+ */
+final class MiaoBindingPlan {
+    private static final MiaoLogger logger = MiaoLogger.getLogger(MiaoBindingPlan.class);
+    //类 -> 绑定计划，挂在类本身上，不会阻止插件或热部署环境中的类加载器被卸载
+    private static final ClassValue<MiaoBindingPlan> PLANS = new ClassValue<MiaoBindingPlan>() {
+        @Override
+        protected MiaoBindingPlan computeValue(Class<?> type) {
+            return new MiaoBindingPlan(type);
+        }
+    };
+
+    private final Class<?> clazz;
+    //@MiaoConfig中的主节点路径，没有注解时为空字符串
+    private final String mainPath;
+    private final List<FieldBinding> bindings;
+    //编译期生成的绑定器，没有则为null
+    private final MiaoConfigBinder<Object> binder;
+    //绑定下标 -> 绑定器中的字段下标（反射得到的字段顺序不保证与源码一致）
+    private final int[] binderIndexes;
+
+    private MiaoBindingPlan(Class<?> clazz) {
+        this.clazz = clazz;
+        MiaoConfig miaoConfig = clazz.getAnnotation(MiaoConfig.class);
+        this.mainPath = miaoConfig == null ? "" : miaoConfig.path();
+        List<FieldBinding> temp = new ArrayList<>();
+        for (Field field : collectFields(clazz).values()) {
+            temp.add(new FieldBinding(field, mainPath));
+        }
+        this.bindings = Collections.unmodifiableList(temp);
+        MiaoConfigBinder<Object> loaded = miaoConfig == null ? null : loadBinder(clazz);
+        this.binderIndexes = loaded == null ? null : mapBinderIndexes(loaded, bindings);
+        this.binder = binderIndexes == null ? null : loaded;
+    }
+
+    /**
+     * 获取类的绑定计划，不存在则解析并缓存
+     * @param clazz 配置类
+     * @return 绑定计划
+     */
+    static MiaoBindingPlan of(Class<?> clazz) {
+        return PLANS.get(clazz);
+    }
+
+    //递归处理当前类和父类，只保留带注解的字段，子类覆盖父类
+    private static Map<String, Field> collectFields(Class<?> clazz) {
+        Map<String, Field> fieldMap = new LinkedHashMap<>();
+        Class<?> currentClass = clazz;
+        while (currentClass != null && !currentClass.equals(Object.class)) {
+            for (Field field : currentClass.getDeclaredFields()) {
+                if (field.isAnnotationPresent(MiaoValue.class) && !fieldMap.containsKey(field.getName())) {
+                    fieldMap.put(field.getName(), field);
+                }
+            }
+            currentClass = currentClass.getSuperclass();
+        }
+        return fieldMap;
+    }
+
+    //按命名约定查找生成的绑定器
+    @SuppressWarnings("unchecked")
+    private static MiaoConfigBinder<Object> loadBinder(Class<?> clazz) {
+        String name = clazz.getName();
+        int lastDot = name.lastIndexOf('.');
+        String binderName = name.substring(0, lastDot + 1)
+                + name.substring(lastDot + 1).replace('$', '_') + MiaoConfigBinder.SUFFIX;
+        try {
+            Class<?> binderClass = Class.forName(binderName, true, clazz.getClassLoader());
+            if (!MiaoConfigBinder.class.isAssignableFrom(binderClass)) {
+                return null;
+            }
+            logger.debug("使用生成的绑定器: {}", binderName);
+            return (MiaoConfigBinder<Object>) binderClass.getConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Exception | LinkageError e) {
+            logger.warn("加载绑定器{}失败，使用反射: {}", binderName, e.getMessage());
+            return null;
+        }
+    }
+
+    //按字段名对应绑定器的下标，字段对不上时（绑定器与类的编译版本不一致）不使用绑定器
+    private static int[] mapBinderIndexes(MiaoConfigBinder<Object> binder, List<FieldBinding> bindings) {
+        String[] names = binder.fieldNames();
+        if (names.length != bindings.size()) {
+            logger.warn("绑定器{}与配置类的字段不一致，使用反射", binder.getClass().getName());
+            return null;
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            positions.put(names[i], i);
+        }
+        int[] indexes = new int[bindings.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            Integer position = positions.get(bindings.get(i).getName());
+            if (position == null) {
+                logger.warn("绑定器{}与配置类的字段不一致，使用反射", binder.getClass().getName());
+                return null;
+            }
+            indexes[i] = position;
+        }
+        return indexes;
+    }
+
+    //构建完整路径：主节点路径 + 字段路径
+    static String buildFullPath(String mainPath, String fieldPath) {
+        if (mainPath == null || mainPath.isEmpty()) {
+            return fieldPath;
+        }
+        if (fieldPath == null || fieldPath.isEmpty()) {
+            return mainPath;
+        }
+        return mainPath + "." + fieldPath;
+    }
+
+    public Class<?> getClazz() {
+        return clazz;
+    }
+
+    public String getMainPath() {
+        return mainPath;
+    }
+
+    public List<FieldBinding> getBindings() {
+        return bindings;
+    }
+
+    /**
+     * 获取生成的绑定器
+     * @return 绑定器，不存在或已通过 {@link MiaoConfigFactory#setBinderEnabled(boolean)} 关闭时返回null
+     */
+    public MiaoConfigBinder<Object> getBinder() {
+        return MiaoConfigFactory.isBinderEnabled() ? binder : null;
+    }
+
+    /**
+     * 获取字段在绑定器中的下标
+     * @param index 字段在 {@link #getBindings()} 中的下标
+     * @return 传给 {@link MiaoConfigBinder#inject(Object, int, Object)} 的下标
+     */
+    public int getBinderIndex(int index) {
+        return binderIndexes[index];
+    }
+
+    /**
+     * 单个字段的绑定信息（不可变）
+     */
+    static final class FieldBinding {
+        private final Field field;
+        private final MiaoFieldAccessor accessor;
+        private final String name;
+        private final Class<?> type;
+        //字段的子路径（注解path优先，否则用字段名）
+        private final String subPath;
+        //结合主节点后的完整路径
+        private final String fullPath;
+        //编译后的完整路径
+        private final ConfigPath configPath;
+        private final boolean disposable;
+
+        private FieldBinding(Field field, String mainPath) {
+            MiaoValue miaoValue = field.getAnnotation(MiaoValue.class);
+            field.setAccessible(true);
+            this.field = field;
+            this.accessor = MiaoFieldAccessor.of(field);
+            this.name = field.getName();
+            this.type = field.getType();
+            this.subPath = miaoValue.path().trim().isEmpty() ? field.getName() : miaoValue.path();
+            this.fullPath = buildFullPath(mainPath, subPath);
+            this.configPath = ConfigPath.of(fullPath);
+            this.disposable = miaoValue.disposable() == MiaoIsEnable.ENABLE;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        public MiaoFieldAccessor getAccessor() {
+            return accessor;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public String getSubPath() {
+            return subPath;
+        }
+
+        public String getFullPath() {
+            return fullPath;
+        }
+
+        public ConfigPath getConfigPath() {
+            return configPath;
+        }
+
+        public boolean isDisposable() {
+            return disposable;
+        }
+    }
+}
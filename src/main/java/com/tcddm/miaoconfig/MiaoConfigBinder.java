@@ -0,0 +1,45 @@
+package com.tcddm.miaoconfig;
+
+import java.util.Map;
+
+/**
+ * 配置类的绑定器，由 {@link com.tcddm.miaoconfig.processor.MiaoBinderProcessor} 在编译期生成
+ * 生成的类与配置类同包，名为 配置类名_MiaoBinder，存在时会代替反射完成注入和读取
+ * @param <T> 配置类
+ */
+public interface MiaoConfigBinder<T> {
+    /**
+     * 生成类名的后缀
+     */
+    String SUFFIX = "_MiaoBinder";
+
+    /**
+     * 从Map注入配置
+     * @param instance 配置实例
+     * @param configData 配置数据
+     */
+    void inject(T instance, Map<String, Object> configData);
+
+    /**
+     * 生成的字段顺序，下标与 {@link #inject(Object, int, Object)} 的index对应
+     * @return 字段名
+     */
+    String[] fieldNames();
+
+    /**
+     * 注入单个字段，值为null或转换失败时保留字段原值
+     * @param instance 配置实例
+     * @param index 字段下标
+     * @param value 配置值
+     * @return 是否注入成功
+     */
+    boolean inject(T instance, int index, Object value);
+
+    /**
+     * 读取实例中的配置
+     * @param instance 配置实例
+     * @param excludeDisposable 是否排除一次性字段
+     * @return 完整路径 -> 字段值
+     */
+    Map<String, Object> extract(T instance, boolean excludeDisposable);
+}
@@ -0,0 +1,103 @@
+package com.tcddm.miaoconfig;
+
+/**
+ * 配置重载时单个路径的变化
+ * 新增或删除的节点（包括对象节点，此时值为对应的Map）都会产生事件，对象节点与其他值之间的替换为MODIFIED；
+ * 删除或替换对象节点时，其原有的子节点也会各自以REMOVED事件出现，新增对象节点时子节点同样以ADDED事件出现
+ */
+public final class MiaoConfigChangeEvent {
+    /**
+     * 变化类型
+     */
+    public enum Type {
+        ADDED, REMOVED, MODIFIED
+    }
+
+    private final String configName;
+    private final ConfigPath path;
+    private final Type type;
+    private final Object oldValue;
+    private final Object newValue;
+
+    MiaoConfigChangeEvent(String configName, ConfigPath path, Type type, Object oldValue, Object newValue) {
+        this.configName = configName;
+        this.path = path;
+        this.type = type;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * 获取变化的完整路径
+     * @return 路径
+     */
+    public ConfigPath getPath() {
+        return path;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * 获取旧值
+     * @return 旧值，ADDED时为null
+     */
+    public Object getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * 获取新值
+     * @return 新值，REMOVED时为null
+     */
+    public Object getNewValue() {
+        return newValue;
+    }
+
+    /**
+     * 获取转换为指定类型的旧值
+     * @param type 目标类型
+     * @return 转换后的旧值，不存在时返回null，转换失败时返回该类型的默认值
+     */
+    public <V> V getOldValue(Class<V> type) {
+        return convert(oldValue, type);
+    }
+
+    /**
+     * 获取转换为指定类型的新值
+     * @param type 目标类型
+     * @return 转换后的新值，不存在时返回null，转换失败时返回该类型的默认值
+     */
+    public <V> V getNewValue(Class<V> type) {
+        return convert(newValue, type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V convert(Object value, Class<V> type) {
+        if (value == null) {
+            return null;
+        }
+        Class<?> wrapperType = TypeConverter.getWrapperType(type);
+        try {
+            return (V) (wrapperType != null ? wrapperType : type).cast(TypeConverter.convertValue(value, type, false));
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MiaoConfigChangeEvent{" +
+                "configName=" + configName +
+                ", path=" + path +
+                ", type=" + type +
+                ", oldValue=" + oldValue +
+                ", newValue=" + newValue +
+                '}';
+    }
+}
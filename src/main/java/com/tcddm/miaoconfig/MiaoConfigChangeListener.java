@@ -0,0 +1,17 @@
+package com.tcddm.miaoconfig;
+
+import java.util.List;
+
+/**
+ * 配置变化监听器
+ * 通过 {@link MiaoConfigFileManager#addChangeListener(String, MiaoConfigChangeListener)} 注册，
+ * 配置文件重载且内容有变化时调用，在执行重载的线程中同步执行
+ */
+@FunctionalInterface
+public interface MiaoConfigChangeListener {
+    /**
+     * 配置发生变化
+     * @param events 本次重载中所有变化的路径
+     */
+    void onChange(List<MiaoConfigChangeEvent> events);
+}
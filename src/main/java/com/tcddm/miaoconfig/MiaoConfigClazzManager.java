@@ -1,7 +1,6 @@
 package com.tcddm.miaoconfig;
 
 import com.tcddm.miaoconfig.annotation.MiaoConfig;
-import com.tcddm.miaoconfig.annotation.MiaoValue;
 import com.tcddm.miaoconfig.egg.MiaoLogger;
 import com.tcddm.miaoconfig.exception.MiaoConfigReadException;
 import com.tcddm.miaoconfig.exception.MiaoConfigSetException;
@@ -10,27 +9,157 @@ import java.io.IOException;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class MiaoConfigClazzManager<T> {
     private static final MiaoLogger logger=MiaoLogger.getLogger(MiaoConfigClazzManager.class);
-    //存储弱引用包装的实例（键：弱引用，值：实例本身，仅用于方便获取）
-    private final CopyOnWriteArrayList<WeakReference<T>> container = new CopyOnWriteArrayList<>();
+    //按配置名称分组存储弱引用包装的实例（配置名称 -> 序号 -> 弱引用），按序号保持加载顺序
+    private final Map<String, ConcurrentSkipListMap<Long, InstanceRef<T>>> container = new ConcurrentHashMap<>();
+    //按实例身份索引的弱引用（键和值是同一个InstanceRef，查找时使用IdentityKey），不会阻止实例被回收
+    private final Map<Object, InstanceRef<T>> refs = new ConcurrentHashMap<>();
+    //加载序号
+    private final AtomicLong sequence = new AtomicLong();
     //引用队列：当弱引用关联的对象被回收时，弱引用会被加入此队列
     private final ReferenceQueue<T> referenceQueue = new ReferenceQueue<>();
+    //后台清理线程，没有启动时为null
+    private volatile Thread reaper;
+    //reloadAllConfig使用的线程池，为null时串行执行
+    private volatile Executor reloadExecutor;
+    //字段快照中表示需要推送的值：注入失败、路径不存在或无法记录（嵌套集合、自定义对象等）
+    private static final Object UNKNOWN = new Object();
+    //可以直接用equals比较的不可变类型
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class,
+            Long.class, Float.class, Double.class, java.math.BigInteger.class, java.math.BigDecimal.class));
 
     /**
-     * 添加实例到容器
+     * 实例的弱引用，记录所属的配置名称，回收后可以直接从对应分组中删除
      */
-    private void add(T instance) {
+    static final class InstanceRef<T> extends WeakReference<T> {
+        private final String configName;
+        private final long sequence;
+        //实例的身份哈希，实例被回收后仍然可以从索引中删除
+        private final int hash;
+        //注入或保存后各字段的值（与绑定计划中的字段顺序一致），没有记录时为null
+        private volatile Object[] fields;
+
+        InstanceRef(T instance, String configName, long sequence, ReferenceQueue<? super T> queue) {
+            super(instance, queue);
+            this.configName = configName;
+            this.sequence = sequence;
+            this.hash = System.identityHashCode(instance);
+        }
+
+        String getConfigName() {
+            return configName;
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+
+        Object[] getFields() {
+            return fields;
+        }
+
+        void setFields(Object[] fields) {
+            this.fields = fields;
+        }
+
+        //引用同一个存活实例时相等，已回收的引用只与自身相等
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof InstanceRef)) {
+                return false;
+            }
+            Object instance = get();
+            return instance != null && instance == ((InstanceRef<?>) o).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 按身份查找实例弱引用时使用的临时键，不需要为每次查找创建弱引用
+     */
+    private static final class IdentityKey {
+        private final Object instance;
+
+        IdentityKey(Object instance) {
+            this.instance = instance;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof InstanceRef && ((InstanceRef<?>) o).get() == instance;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(instance);
+        }
+    }
+
+    /**
+     * 添加实例到容器，与已加载的实例数量无关；实例已加载时返回已有的弱引用
+     */
+    private InstanceRef<T> add(T instance, String configName) {
         //清理已被回收的引用
         cleanUp();
-        //创建弱引用并关联引用队列，然后存入容器
-        WeakReference<T> weakRef = new WeakReference<>(instance, referenceQueue);
-        container.add(weakRef);
+        //创建弱引用并关联引用队列，然后存入对应配置的分组
+        InstanceRef<T> ref = new InstanceRef<>(instance, configName, sequence.incrementAndGet(), referenceQueue);
+        ConcurrentSkipListMap<Long, InstanceRef<T>> bucket = container.computeIfAbsent(configName, k -> new ConcurrentSkipListMap<>());
+        bucket.put(ref.getSequence(), ref);
+        InstanceRef<T> existing = refs.putIfAbsent(ref, ref);
+        if (existing != null) {
+            bucket.remove(ref.getSequence());
+            ref.clear();
+            return existing;
+        }
+        return ref;
+    }
+
+    //按身份查找实例的弱引用，与已加载的实例数量无关，实例没有通过load加载时返回null
+    private InstanceRef<T> findRef(T instance) {
+        return refs.get(new IdentityKey(instance));
+    }
+
+    /**
+     * 移除实例，之后不再参与重载和保存
+     * @param instance 实例
+     * @return 是否移除
+     */
+    public boolean unload(T instance) {
+        MiaoConfig miaoConfig = instance.getClass().getAnnotation(MiaoConfig.class);
+        if (miaoConfig == null) {
+            return false;
+        }
+        InstanceRef<T> ref = refs.remove(new IdentityKey(instance));
+        if (ref == null) {
+            return false;
+        }
+        ConcurrentSkipListMap<Long, InstanceRef<T>> bucket = container.get(ref.getConfigName());
+        if (bucket != null) {
+            bucket.remove(ref.getSequence());
+        }
+        ref.clear();
+        return true;
     }
 
     public MiaoConfigClazzManager<T> load(T instance) {
@@ -38,19 +167,21 @@ public class MiaoConfigClazzManager<T> {
             logger.debug("实例缺少注解: {}", buildInstanceName(instance));
             return this;
         }
-        //加入维护表
-        add(instance);
-
         MiaoConfig miaoConfigAnnotation = instance.getClass().getAnnotation(MiaoConfig.class);
         String configName = miaoConfigAnnotation.configName();
+        //加入维护表
+        InstanceRef<T> ref = add(instance, configName);
+        MiaoConfigFileManager.MiaoConfigFile miaoConfigFile=MiaoConfigFactory.getConfigFileManager().getForName(configName);
+        if(miaoConfigFile==null){
+            handleConfigError(buildInstanceName(instance), "未找到配置文件", configName, null);
+            return this;
+        }
         try {
 
-            //注入配置
-            setFieldsFromMap(instance, MiaoConfigFileManager.getConfigData(configName),miaoConfigAnnotation.path());
+            //注入配置（从内存中的配置读取，延迟加载的配置文件在此时解析）
+            inject(instance, ref, miaoConfigFile, null);
 
             logger.info("配置注入完成: {}", buildInstanceName(instance));
-        } catch (IOException e) {
-            handleConfigError(buildInstanceName(instance), "读取配置文件失败", configName, e);
         } catch (Exception e) {
             handleConfigError(buildInstanceName(instance), "解析配置文件失败", configName, e);
         }
@@ -64,26 +195,80 @@ public class MiaoConfigClazzManager<T> {
         reloadAllConfig(true);
     }
     private void reloadAllConfig(boolean isSave){
-        Map<String,List<T>> instances=new HashMap<>();
-        for(T instance:getAliveInstances()){
-            String configName=instance.getClass().getAnnotation(MiaoConfig.class).configName();
-            if(instances.containsKey(configName)){
-                List<T> temp=instances.get(configName);
-                temp.add(instance);
-            }else{
-                List<T> temp=new ArrayList<>();
-                temp.add(instance);
-                instances.put(configName,temp);
+        cleanUp();
+        List<String> configNames=new ArrayList<>();
+        for(Map.Entry<String, ConcurrentSkipListMap<Long, InstanceRef<T>>> entry:container.entrySet()){
+            if(hasAlive(entry.getValue())){
+                configNames.add(entry.getKey());
             }
         }
-        for(String configName:instances.keySet()){
-            MiaoConfigFactory.getConfigFileManager().reloadConfig(configName,isSave);
-            List<T> temp=instances.get(configName);
-            for(T instance:temp){
-                reloadConfigByMemory(instance);
+        if(configNames.isEmpty()){return;}
+        Executor executor=reloadExecutor;
+        //所有配置文件读取完成后在同一个快照版本中生效，之后从该快照注入，实例不会混用新旧版本
+        Map<String, List<MiaoConfigChangeEvent>> changes=MiaoConfigFactory.getConfigFileManager().reloadConfigs(configNames,isSave,executor);
+        MiaoConfigSnapshot snapshot=MiaoConfigFactory.getConfigFileManager().snapshot();
+        //重新解析的配置只注入变化的字段；没有重新解析的配置不需要注入，
+        //但保存时全局配置和同一配置的其他实例可能修改了内存中的配置，这些修改不在变化中，需要全部重新注入
+        Map<String, Set<String>> injectPaths=new LinkedHashMap<>();
+        for(String configName:configNames){
+            List<MiaoConfigChangeEvent> events=changes.get(configName);
+            if(events!=null){
+                if(!events.isEmpty()){
+                    injectPaths.put(configName,changedPaths(events));
+                }
+            }else if(isSave){
+                injectPaths.put(configName,null);
+            }
+        }
+        if(executor==null){
+            for(Map.Entry<String, Set<String>> entry:injectPaths.entrySet()){
+                inject(entry.getKey(),snapshot,entry.getValue());
+            }
+            return;
+        }
+        //各配置文件互不依赖，不同配置的实例并行注入
+        List<CompletableFuture<Void>> futures=new ArrayList<>(injectPaths.size());
+        for(Map.Entry<String, Set<String>> entry:injectPaths.entrySet()){
+            String configName=entry.getKey();
+            Set<String> paths=entry.getValue();
+            try {
+                futures.add(CompletableFuture.runAsync(() -> inject(configName,snapshot,paths),executor));
+            } catch (RejectedExecutionException e) {
+                logger.warn("注入任务被拒绝，在当前线程执行：{}",configName);
+                inject(configName,snapshot,paths);
+            }
+        }
+        for(CompletableFuture<Void> future:futures){
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                logger.error("重载配置失败：{}",e.getCause()==null?e.getMessage():e.getCause().getMessage());
             }
         }
     }
+    //从快照中的配置文件重新注入绑定它的实例，changedPaths为null时注入全部字段
+    private void inject(String configName,MiaoConfigSnapshot snapshot,Set<String> changedPaths){
+        MiaoConfigFileManager.MiaoConfigFile miaoConfigFile=snapshot.get(configName);
+        if(miaoConfigFile==null){return;}
+        forEachAliveRef(configName, (instance, ref) -> {
+            try {
+                inject(instance, ref, miaoConfigFile, changedPaths);
+                logger.info("配置重载完成：{}",buildInstanceName(instance));
+            } catch (Exception e) {
+                logger.warn("重新注入配置失败：{}",e);
+            }
+        });
+    }
+    /**
+     * 设置reloadAllConfig使用的线程池，设置后不同配置文件的读取和注入并行执行，调用方等待全部完成
+     * 不要在该线程池的任务中调用reloadAllConfig，否则可能因线程耗尽而无法完成
+     * @param executor 线程池，为null时在当前线程逐个执行（默认）
+     * @return this
+     */
+    public MiaoConfigClazzManager<T> setReloadExecutor(Executor executor){
+        this.reloadExecutor=executor;
+        return this;
+    }
     public void reloadConfig(T instance){
         reloadConfig(instance,false);
     }
@@ -92,39 +277,84 @@ public class MiaoConfigClazzManager<T> {
     }
     private void reloadConfig(T instance,boolean isSave){
         String configName = instance.getClass().getAnnotation(MiaoConfig.class).configName();
-        MiaoConfigFactory.getConfigFileManager().reloadConfig(configName,isSave);
-        reloadConfigByMemory(instance);
+        List<MiaoConfigChangeEvent> events=MiaoConfigFactory.getConfigFileManager().reloadConfigForChanges(configName,isSave);
+        if(events==null){
+            //没有重新解析，保存时内存中的配置可能被其他实例或全局配置修改，全部重新注入
+            if(isSave){
+                reloadConfigByMemory(instance);
+            }
+            return;
+        }
+        if(events.isEmpty()){
+            return;
+        }
+        try {
+            inject(instance, findRef(instance), MiaoConfigFactory.getConfigFileManager().getForName(configName), changedPaths(events));
+            logger.info("配置重载完成：{}",buildInstanceName(instance));
+        } catch (Exception e) {
+            logger.warn("重新注入配置失败：{}",e);
+        }
+    }
+    /**
+     * 重载配置文件，并重新注入绑定该配置的实例
+     * @param configName 配置名称
+     */
+    public void reloadConfig(String configName){
+        if(configName==null||MiaoConfigFactory.getConfigFileManager().getForName(configName)==null){
+            logger.debug("未找到对应配置文件：{}", configName);
+            return;
+        }
+        //文件没有变化时不需要重新注入
+        List<MiaoConfigChangeEvent> events=MiaoConfigFactory.getConfigFileManager().reloadConfigForChanges(configName,false);
+        if(events==null||events.isEmpty()){
+            return;
+        }
+        Set<String> changedPaths=changedPaths(events);
+        MiaoConfigFileManager.MiaoConfigFile miaoConfigFile=MiaoConfigFactory.getConfigFileManager().getForName(configName);
+        forEachAliveRef(configName, (instance, ref) -> {
+            try {
+                inject(instance, ref, miaoConfigFile, changedPaths);
+                logger.info("配置重载完成：{}",buildInstanceName(instance));
+            } catch (Exception e) {
+                logger.warn("重新注入配置失败：{}",e);
+            }
+        });
+    }
+    //变化的路径及其所有父路径，字段路径在其中时才需要重新注入
+    private static Set<String> changedPaths(List<MiaoConfigChangeEvent> events){
+        Set<String> changedPaths=new HashSet<>();
+        for(MiaoConfigChangeEvent event:events){
+            ConfigPath path=event.getPath();
+            StringBuilder prefix=new StringBuilder();
+            for(int i=0;i<path.size();i++){
+                if(i>0){prefix.append('.');}
+                prefix.append(path.get(i));
+                changedPaths.add(prefix.toString());
+            }
+        }
+        return changedPaths;
     }
     public void reloadConfigByMemory(T instance){
-        MiaoConfig miaoConfigAnnotation = instance.getClass().getAnnotation(MiaoConfig.class);
+        String configName = instance.getClass().getAnnotation(MiaoConfig.class).configName();
         try {
-            setFieldsFromMap(instance, MiaoConfigFactory.getConfigFileManager().getForName(miaoConfigAnnotation.configName()).getConfig(),miaoConfigAnnotation.path());
+            inject(instance, findRef(instance), MiaoConfigFactory.getConfigFileManager().getForName(configName), null);
             logger.info("配置重载完成：{}",buildInstanceName(instance));
         } catch (Exception e) {
             logger.warn("重新注入配置失败：{}",e);
         }
     }
     public void saveAllConfig() {
-
-        for (T instance : getAliveInstances()) {
-            saveConfig(instance);
-        }
+        forEachAliveRef((instance, ref) -> saveConfig(instance, ref, false));
     }
     public void saveConfig(String configName) {
         if(configName==null||configName.isEmpty()||MiaoConfigFactory.getConfigFileManager().getForName(configName)==null){
             logger.debug("未找到对应配置文件：{}", configName);
             return;
         }
-        for (T instance : getAliveInstances()) {
-            if(configName.equals(instance.getClass().getAnnotation(MiaoConfig.class).configName())){
-                saveConfig(instance);
-            }
-        }
+        forEachAliveRef(configName, (instance, ref) -> saveConfig(instance, ref, false));
     }
     public void saveAllConfigToMemory() {
-        for (T instance : getAliveInstances()) {
-            saveConfigToMemory(instance);
-        }
+        forEachAliveRef((instance, ref) -> saveConfig(instance, ref, true));
     }
     public void saveConfig(T instance){saveConfig(instance,false);}
     public void saveConfigToMemory(T instance){saveConfig(instance,true);}
@@ -133,10 +363,13 @@ public class MiaoConfigClazzManager<T> {
             logger.debug("实例缺少注解: {}", buildInstanceName(instance));
             return;
         }
-        MiaoConfig miaoConfigAnnotation = instance.getClass().getAnnotation(MiaoConfig.class);
-        String configName = miaoConfigAnnotation.configName();
+        saveConfig(instance, findRef(instance), saveToMemory);
+    }
+    private void saveConfig(T instance,InstanceRef<T> ref,boolean saveToMemory){
+        String configName = instance.getClass().getAnnotation(MiaoConfig.class).configName();
         MiaoConfigFileManager.MiaoConfigFile miaoConfigFile=MiaoConfigFactory.getConfigFileManager().getForName(configName);
-        Map<String,Object> configData= updateGlobalConfigToMemory(configName,updateConfigToMemory(instance,miaoConfigFile));
+        updateConfigToMemory(instance,ref,miaoConfigFile);
+        updateGlobalConfigToMemory(configName,miaoConfigFile);
         if(saveToMemory){return;}
         if (!miaoConfigFile.isEdit()) {
             logger.info("配置保存完成,但是由于没有更改并未写入文件: {}", buildInstanceName(instance));
@@ -144,140 +377,250 @@ public class MiaoConfigClazzManager<T> {
         }
         MiaoConfigFactory.getConfigFileManager().saveConfig(configName,buildInstanceName(instance));
     }
-    private Map<String,Object> updateConfigToMemory(T instance, MiaoConfigFileManager.MiaoConfigFile miaoConfigFile) {
-        Map<String,Object> configData=miaoConfigFile.getConfig();
-        Map<String,Object> temp =getMapForClazz(instance,true);
-        for(String path: temp.keySet()){
-            if(PathUtils.setValue(configData,path,temp.get(path))){
+    private void updateConfigToMemory(T instance, InstanceRef<T> ref, MiaoConfigFileManager.MiaoConfigFile miaoConfigFile) {
+        Object[] fields = ref == null ? null : ref.getFields();
+        if (fields == null) {
+            //没有字段快照时比较所有字段，所有字段合并为一次修改
+            if(miaoConfigFile.setValues(getMapForClazz(instance,true))){
                 miaoConfigFile.setEdit();
             }
+            return;
         }
-        return configData;
+        //只推送与快照不同的字段，没有修改时不创建Map
+        List<MiaoBindingPlan.FieldBinding> bindings = MiaoBindingPlan.of(instance.getClass()).getBindings();
+        Map<ConfigPath, Object> changed = null;
+        Object[] updated = null;
+        for (int i = 0; i < bindings.size(); i++) {
+            MiaoBindingPlan.FieldBinding binding = bindings.get(i);
+            //过滤一次性字段
+            if (binding.isDisposable()) {
+                continue;
+            }
+            Object value;
+            try {
+                value = binding.getAccessor().get(instance);
+            } catch (RuntimeException e) {
+                logger.warn("获取字段{}值失败", binding.getName(), e);
+                continue;
+            }
+            if (fields[i] != UNKNOWN && Objects.deepEquals(fields[i], value)) {
+                continue;
+            }
+            if (changed == null) {
+                changed = new LinkedHashMap<>();
+                updated = fields.clone();
+            }
+            changed.put(binding.getConfigPath(), value);
+            updated[i] = snapshotValue(value);
+        }
+        if (changed == null) {
+            return;
+        }
+        if (miaoConfigFile.setValues(changed)) {
+            miaoConfigFile.setEdit();
+        }
+        ref.setFields(updated);
     }
-    private Map<String,Object> updateGlobalConfigToMemory(String configName,Map<String,Object> configData){
-        //如果没有全局配置就直接返回原Map
-        if(!MiaoConfigFactory.getHasGlobalConfig(configName)){return configData;}
+    //注入配置，并记录注入后的字段快照
+    private void inject(T instance, InstanceRef<T> ref, MiaoConfigFileManager.MiaoConfigFile miaoConfigFile, Set<String> changedPaths) {
+        if (ref == null) {
+            if (changedPaths == null) {
+                setFieldsFromFile(instance, miaoConfigFile);
+            } else {
+                setFieldsFromFile(instance, miaoConfigFile, changedPaths);
+            }
+            return;
+        }
+        Object[] previous = ref.getFields();
+        Object[] fields = new Object[MiaoBindingPlan.of(instance.getClass()).getBindings().size()];
+        if (changedPaths == null || previous == null || previous.length != fields.length) {
+            //没有注入的字段保存时始终推送
+            Arrays.fill(fields, UNKNOWN);
+            if (changedPaths == null) {
+                setFieldsFromFile(instance, miaoConfigFile, fields);
+            } else {
+                setFieldsFromFile(instance, miaoConfigFile, changedPaths, fields);
+            }
+        } else {
+            System.arraycopy(previous, 0, fields, 0, fields.length);
+            setFieldsFromFile(instance, miaoConfigFile, changedPaths, fields);
+        }
+        ref.setFields(fields);
+    }
+    //不可变的值原样记录；元素不可变的集合和数组记录副本，之后直接修改集合也能发现；其余的值保存时始终推送
+    private static Object snapshotValue(Object value) {
+        if (isImmutable(value)) {
+            return value;
+        }
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                if (!isImmutable(element)) {
+                    return UNKNOWN;
+                }
+            }
+            return value instanceof Set ? new HashSet<>((Set<?>) value) : new ArrayList<>((Collection<?>) value);
+        }
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!isImmutable(entry.getKey()) || !isImmutable(entry.getValue())) {
+                    return UNKNOWN;
+                }
+            }
+            return new HashMap<>((Map<?, ?>) value);
+        }
+        Class<?> componentType = value.getClass().getComponentType();
+        if (componentType != null && (componentType.isPrimitive() || IMMUTABLE_TYPES.contains(componentType) || componentType.isEnum())) {
+            int length = java.lang.reflect.Array.getLength(value);
+            Object copy = java.lang.reflect.Array.newInstance(componentType, length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return copy;
+        }
+        return UNKNOWN;
+    }
+    private static boolean isImmutable(Object value) {
+        return value == null || value instanceof Enum || IMMUTABLE_TYPES.contains(value.getClass());
+    }
+    private void updateGlobalConfigToMemory(String configName,MiaoConfigFileManager.MiaoConfigFile miaoConfigFile){
+        //如果没有全局配置就直接返回
+        if(!MiaoConfigFactory.getHasGlobalConfig(configName)){return;}
         //获得对应的全局配置
         MiaoGlobalConfig miaoGlobalConfig=MiaoConfigFactory.getGlobalConfig(configName);
         //将全局配置保存的覆盖
-        Map<String,Object> temp=miaoGlobalConfig.getDynamicConfig();
-        MiaoConfigFileManager.MiaoConfigFile miaoConfigFile=miaoGlobalConfig.getMiaoConfigFile();
-        for(String path: temp.keySet()){
-           if(PathUtils.setValue(configData,path,temp.get(path))){
-               miaoConfigFile.setEdit();
-           }
+        if(miaoConfigFile.setValues(miaoGlobalConfig.getDynamicConfig())){
+            miaoConfigFile.setEdit();
         }
         //取消全部设置
         miaoGlobalConfig.cancelAllSet();
-        //返回覆盖后的Map
-        return configData;
     }
 
-    //构建完整路径：主节点路径 + 字段路径
-    private static String buildFullPath(String mainPath, String fieldPath) {
-        if (mainPath == null || mainPath.isEmpty()) {
-            return fieldPath;
-        }
-        if (fieldPath == null || fieldPath.isEmpty()) {
-            return mainPath;
-        }
-        return mainPath + "." + fieldPath;
-    }
     private String buildInstanceName(T instance){
         return instance.getClass().getSimpleName()+"["+instance.hashCode()+"]";
     }
-    private static Map<String, Field> getAllField(Class clazz) {
-        Map<String, Field> fieldMap = new HashMap<>();
-        Class<?> currentClass = clazz;
-
-        //递归处理当前类和父类
-        while (currentClass != null && !currentClass.equals(Object.class)) {
-            for (Field field : currentClass.getDeclaredFields()) {
-                //只保留带注解的字段，子类覆盖父类
-                if (field.isAnnotationPresent(MiaoValue.class) && !fieldMap.containsKey(field.getName())) {
-                    fieldMap.put(field.getName(), field);
-                }
-            }
-            currentClass = currentClass.getSuperclass();
-        }
-        return fieldMap;
-    }
     /**
      * 从Map设置对象字段值
      */
     public static <T> void setFieldsFromMap(T config, Map<String, Object> configData,String mainPath) {
+        MiaoBindingPlan plan = MiaoBindingPlan.of(config.getClass());
+        //主路径与注解一致时直接使用计划中预先拆分好的路径
+        boolean samePath = Objects.equals(plan.getMainPath(), mainPath == null ? "" : mainPath);
+        MiaoConfigBinder<Object> binder = plan.getBinder();
+        if (samePath && binder != null) {
+            binder.inject(config, configData);
+            return;
+        }
+        for (MiaoBindingPlan.FieldBinding binding : plan.getBindings()) {
+            logger.debug("处理字段: {} (类型: {})", binding.getName(), binding.getType());
 
-        Class<?> clazz = config.getClass();
-        Map<String, Field> fieldMap = getAllField(clazz);
-        for (Field field : fieldMap.values()) {
-
-            //只处理带@MiaoValue注解的字段
-            if (!field.isAnnotationPresent(MiaoValue.class)) {continue;}
-            logger.debug("处理字段: {} (类型: {})", field.getName(), field.getType());
-
-            MiaoValue miaoValue = field.getAnnotation(MiaoValue.class);
-            //确定字段的子路径（注解path优先，否则用字段名）
-            String fieldSubPath = miaoValue.path().trim().isEmpty() ? field.getName() : miaoValue.path();
-            //组合主路径和子路径，得到完整配置路径
-            String fullConfigPath = buildFullPath(mainPath, fieldSubPath);
             //从配置数据中按完整路径获取值（支持嵌套路径）
-            Object value = PathUtils.getValue(configData, fullConfigPath);
-
-
-                field.setAccessible(true);
-                if (value != null) {
-                    try {
-                        //类型转换
-                            value = TypeConverter.convertValue(value, field.getType(),true);
-                        field.set(config, value);
-                    } catch (Exception e) {
-                        logger.warn("设置{}字段错误，使用默认值: {}", field.getName(),
-                                new MiaoConfigSetException(e.getMessage(), config.toString()).getMessage());
-                    }
-                }else{
-                    logger.warn("实例[{}]的配置路径[{}]不存在，字段[{}]使用默认值",
-                            config, fullConfigPath, field.getName());
+            String fullConfigPath;
+            Object value;
+            if (samePath) {
+                fullConfigPath = binding.getFullPath();
+                value = PathUtils.getValue(configData, binding.getConfigPath());
+            } else {
+                fullConfigPath = MiaoBindingPlan.buildFullPath(mainPath, binding.getSubPath());
+                value = PathUtils.getValue(configData, fullConfigPath);
+            }
 
+            setField(config, binding, value, fullConfigPath);
+        }
+    }
+    /**
+     * 从内存中的配置文件设置对象字段值（通过扁平索引读取）
+     */
+    static <T> void setFieldsFromFile(T config, MiaoConfigFileManager.MiaoConfigFile miaoConfigFile) {
+        setFieldsFromFile(config, miaoConfigFile, (Object[]) null);
+    }
+    /**
+     * 从内存中的配置文件设置对象字段值，并记录注入成功的字段值
+     * @param fields 字段快照，注入成功的字段写入注入后的值，为null时不记录
+     */
+    static <T> void setFieldsFromFile(T config, MiaoConfigFileManager.MiaoConfigFile miaoConfigFile, Object[] fields) {
+        MiaoBindingPlan plan = MiaoBindingPlan.of(config.getClass());
+        MiaoConfigBinder<Object> binder = plan.getBinder();
+        List<MiaoBindingPlan.FieldBinding> bindings = plan.getBindings();
+        for (int i = 0; i < bindings.size(); i++) {
+            injectField(config, plan, binder, i, miaoConfigFile, fields);
+        }
+    }
+    /**
+     * 只重新注入路径发生变化的字段
+     * @param changedPaths 变化的路径及其所有父路径（规范形式）
+     */
+    static <T> void setFieldsFromFile(T config, MiaoConfigFileManager.MiaoConfigFile miaoConfigFile, Set<String> changedPaths) {
+        setFieldsFromFile(config, miaoConfigFile, changedPaths, null);
+    }
+    /**
+     * 只重新注入路径发生变化的字段，并记录注入成功的字段值
+     * @param changedPaths 变化的路径及其所有父路径（规范形式）
+     * @param fields 字段快照，为null时不记录
+     */
+    static <T> void setFieldsFromFile(T config, MiaoConfigFileManager.MiaoConfigFile miaoConfigFile, Set<String> changedPaths, Object[] fields) {
+        MiaoBindingPlan plan = MiaoBindingPlan.of(config.getClass());
+        MiaoConfigBinder<Object> binder = plan.getBinder();
+        List<MiaoBindingPlan.FieldBinding> bindings = plan.getBindings();
+        for (int i = 0; i < bindings.size(); i++) {
+            if (changedPaths.contains(bindings.get(i).getConfigPath().getKey())) {
+                injectField(config, plan, binder, i, miaoConfigFile, fields);
+            }
+        }
+    }
+    //通过扁平索引读取并注入单个字段，有生成的绑定器时由绑定器直接赋值，注入失败的字段记录为需要推送
+    private static void injectField(Object config, MiaoBindingPlan plan, MiaoConfigBinder<Object> binder, int i,
+                                    MiaoConfigFileManager.MiaoConfigFile miaoConfigFile, Object[] fields) {
+        MiaoBindingPlan.FieldBinding binding = plan.getBindings().get(i);
+        logger.debug("处理字段: {} (类型: {})", binding.getName(), binding.getType());
+        Object value = miaoConfigFile.getValue(binding.getConfigPath());
+        boolean set = binder != null
+                ? binder.inject(config, plan.getBinderIndex(i), value)
+                : setField(config, binding, value, binding.getFullPath());
+        if (fields != null) {
+            fields[i] = set ? snapshotValue(binding.getAccessor().get(config)) : UNKNOWN;
+        }
+    }
+    private static <T> boolean setField(T config, MiaoBindingPlan.FieldBinding binding, Object value, String fullConfigPath) {
+        if (value != null) {
+            try {
+                MiaoFieldAccessor accessor = binding.getAccessor();
+                //基本类型字段能直接写入时不经过类型转换
+                if (!accessor.setPrimitive(config, value)) {
+                    //类型转换
+                    accessor.set(config, TypeConverter.convertValue(value, binding.getType(), true));
                 }
+                return true;
+            } catch (Exception e) {
+                logger.warn("设置{}字段错误，使用默认值: {}", binding.getName(),
+                        new MiaoConfigSetException(e.getMessage(), config.toString()).getMessage());
+            }
+        } else {
+            logger.warn("实例[{}]的配置路径[{}]不存在，字段[{}]使用默认值",
+                    config, fullConfigPath, binding.getName());
         }
+        return false;
     }
     public static <T> Map<String, Object> getMapForClazz(T config, Boolean excludeDisposable) {
         Map<String, Object> resultMap = new HashMap<>();
         Class<?> clazz = config.getClass();
-        MiaoConfig miaoConfig = clazz.getAnnotation(MiaoConfig.class);
-        if (miaoConfig == null) {
+        if (!clazz.isAnnotationPresent(MiaoConfig.class)) {
             return resultMap;
         }
 
-        String mainPath = miaoConfig.path();  //获取主节点路径
-        Map<String, Field> fieldMap = getAllField(clazz);
-
-        //过滤一次性字段
-        if (excludeDisposable) {
-            fieldMap.values().removeIf(field -> {
-                MiaoValue value = field.getAnnotation(MiaoValue.class);
-                return value != null && value.disposable() == MiaoIsEnable.ENABLE;
-            });
+        MiaoBindingPlan plan = MiaoBindingPlan.of(clazz);
+        MiaoConfigBinder<Object> binder = plan.getBinder();
+        if (binder != null) {
+            return binder.extract(config, excludeDisposable);
         }
-
         //遍历字段生成配置Map（支持嵌套路径）
-        for (Field field : fieldMap.values()) {
-            MiaoValue miaoValue = field.getAnnotation(MiaoValue.class);
-            if (miaoValue == null) {
+        for (MiaoBindingPlan.FieldBinding binding : plan.getBindings()) {
+            //过滤一次性字段
+            if (excludeDisposable && binding.isDisposable()) {
                 continue;
             }
-
-            //确定字段路径并构建完整路径
-            String fieldPath = miaoValue.path().isEmpty() ? field.getName() : miaoValue.path();
-            String fullPath = buildFullPath(mainPath, fieldPath);
-
             try {
-                field.setAccessible(true);
-                Object fieldValue = field.get(config);
                 //按完整路径设置嵌套值
-                resultMap.put(fullPath,fieldValue);
-            } catch (IllegalAccessException e) {
-                logger.warn("获取字段{}值失败", field.getName(), e);
+                resultMap.put(binding.getFullPath(), binding.getAccessor().get(config));
+            } catch (RuntimeException e) {
+                logger.warn("获取字段{}值失败", binding.getName(), e);
             }
         }
 
@@ -306,27 +649,170 @@ public class MiaoConfigClazzManager<T> {
      */
     public List<T> getAliveInstances() {
         cleanUp();
-        return container.stream()
-                .map(WeakReference::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        List<T> instances = new ArrayList<>();
+        for (ConcurrentSkipListMap<Long, InstanceRef<T>> bucket : container.values()) {
+            collectAlive(bucket, instances);
+        }
+        return instances;
+    }
+
+    /**
+     * 获取绑定指定配置的存活实例，按加载顺序排列
+     * @param configName 配置名称
+     * @return 实例列表
+     */
+    public List<T> getAliveInstances(String configName) {
+        cleanUp();
+        List<T> instances = new ArrayList<>();
+        ConcurrentSkipListMap<Long, InstanceRef<T>> bucket = container.get(configName);
+        if (bucket != null) {
+            collectAlive(bucket, instances);
+        }
+        return instances;
+    }
+
+    /**
+     * 遍历当前存活的所有实例，不创建列表
+     * @param action 对每个实例执行的操作
+     */
+    public void forEachAlive(Consumer<? super T> action) {
+        cleanUp();
+        for (ConcurrentSkipListMap<Long, InstanceRef<T>> bucket : container.values()) {
+            visitAlive(bucket, action);
+        }
+    }
+
+    /**
+     * 按加载顺序遍历绑定指定配置的存活实例，不创建列表
+     * @param configName 配置名称
+     * @param action 对每个实例执行的操作
+     */
+    public void forEachAlive(String configName, Consumer<? super T> action) {
+        cleanUp();
+        ConcurrentSkipListMap<Long, InstanceRef<T>> bucket = container.get(configName);
+        if (bucket != null) {
+            visitAlive(bucket, action);
+        }
+    }
+
+    private void visitAlive(ConcurrentSkipListMap<Long, InstanceRef<T>> bucket, Consumer<? super T> action) {
+        visitAliveRef(bucket, (instance, ref) -> action.accept(instance));
+    }
+
+    //遍历存活实例及其弱引用，保存和注入时直接使用引用中的字段快照
+    private void forEachAliveRef(BiConsumer<T, InstanceRef<T>> action) {
+        cleanUp();
+        for (ConcurrentSkipListMap<Long, InstanceRef<T>> bucket : container.values()) {
+            visitAliveRef(bucket, action);
+        }
+    }
+
+    private void forEachAliveRef(String configName, BiConsumer<T, InstanceRef<T>> action) {
+        cleanUp();
+        ConcurrentSkipListMap<Long, InstanceRef<T>> bucket = container.get(configName);
+        if (bucket != null) {
+            visitAliveRef(bucket, action);
+        }
+    }
+
+    private void visitAliveRef(ConcurrentSkipListMap<Long, InstanceRef<T>> bucket, BiConsumer<T, InstanceRef<T>> action) {
+        //ConcurrentSkipListMap.forEach直接遍历节点，不需要迭代器
+        bucket.forEach((sequence, ref) -> {
+            T instance = ref.get();
+            if (instance != null) {
+                action.accept(instance, ref);
+            }
+        });
+    }
+
+    /**
+     * 启动后台清理线程：阻塞等待被回收的实例并立即从容器中删除，空闲期间不会堆积失效的引用
+     * 运行在Java 21及以上时使用虚拟线程，否则使用守护线程
+     */
+    public synchronized void startReaper() {
+        if (reaper != null) {
+            return;
+        }
+        Runnable task = () -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    unlink(referenceQueue.remove());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        };
+        Thread thread = newVirtualThread(task);
+        if (thread == null) {
+            thread = new Thread(task);
+            thread.setDaemon(true);
+        }
+        thread.setName("MiaoConfig-reaper");
+        reaper = thread;
+        thread.start();
+        logger.debug("实例清理线程已启动: {}", thread);
     }
 
     /**
-     * 从队列中获取被回收的引用，并从容器中删除
+     * 停止后台清理线程，之后仍会在加载和遍历时清理
+     */
+    public synchronized void stopReaper() {
+        if (reaper != null) {
+            reaper.interrupt();
+            reaper = null;
+        }
+    }
+
+    public boolean isReaperRunning() {
+        return reaper != null;
+    }
+
+    //通过反射创建虚拟线程（未启动），不支持时返回null
+    private static Thread newVirtualThread(Runnable task) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+            return (Thread) unstarted.invoke(builder, task);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private boolean hasAlive(ConcurrentSkipListMap<Long, InstanceRef<T>> bucket) {
+        for (InstanceRef<T> ref : bucket.values()) {
+            if (ref.get() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void collectAlive(ConcurrentSkipListMap<Long, InstanceRef<T>> bucket, List<T> instances) {
+        for (InstanceRef<T> ref : bucket.values()) {
+            T instance = ref.get();
+            if (instance != null) {
+                instances.add(instance);
+            }
+        }
+    }
+
+    /**
+     * 从队列中获取被回收的引用，并从对应分组中删除
      */
     private void cleanUp() {
         Reference<? extends T> ref;
-        Set<Reference<? extends T>> refsToRemove = new HashSet<>();
-
-        //收集所有需要移除的引用
         while ((ref = referenceQueue.poll()) != null) {
-            refsToRemove.add(ref);
+            unlink(ref);
         }
+    }
 
-        //使用Set.contains更快
-        if (!refsToRemove.isEmpty()) {
-            container.removeIf(refsToRemove::contains);
+    private void unlink(Reference<? extends T> ref) {
+        InstanceRef<?> instanceRef = (InstanceRef<?>) ref;
+        //已回收的引用只与自身相等，按自身删除
+        refs.remove(instanceRef);
+        ConcurrentSkipListMap<Long, InstanceRef<T>> bucket = container.get(instanceRef.getConfigName());
+        if (bucket != null) {
+            bucket.remove(instanceRef.getSequence());
         }
     }
 }
\ No newline at end of file
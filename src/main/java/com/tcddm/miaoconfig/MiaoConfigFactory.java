@@ -16,6 +16,8 @@ public class MiaoConfigFactory {
     private static final MiaoConfigFileManager miaoConfigFileManager = new MiaoConfigFileManager();
     private static final MiaoConfigClazzManager miaoConfigClazzManager = new MiaoConfigClazzManager();
     private static final Map<String,MiaoGlobalConfig> miaoGlobalConfigs=new ConcurrentHashMap<>();
+    //是否使用编译期生成的绑定器
+    private static volatile boolean binderEnabled = true;
     static {
 
         // 注册默认解析器
@@ -50,6 +52,19 @@ public class MiaoConfigFactory {
         throw new MiaoConfigReadException("不支持的配置文件格式", filename);
 
     }
+    /**
+     * 判断文件是否有已注册的解析器
+     * @param filename 文件名
+     * @return 是否支持
+     */
+    public static boolean isSupported(String filename) {
+        for (String ext : PARSERS.keySet()) {
+            if (filename.endsWith(ext)) {
+                return true;
+            }
+        }
+        return false;
+    }
     public static MiaoGlobalConfig getGlobalConfig() {
         return getGlobalConfig("config");
     }
@@ -60,9 +75,42 @@ public class MiaoConfigFactory {
                 logger.error("获取配置失败: {}", key);
                 return null;
             }
-            return new MiaoGlobalConfig(miaoConfigFile);
+            return new MiaoGlobalConfig(key, miaoConfigFile);
         });
     }
+    /**
+     * 获取配置句柄，配置名、路径和类型只解析一次，配置重载后自动更新
+     * @param configName 配置名称
+     * @param path 配置路径
+     * @param type 目标类型
+     * @param defaultValue 默认值
+     * @return 句柄，配置文件不存在时返回null
+     */
+    public static <T> ConfigKey<T> configKey(String configName, String path, Class<T> type, T defaultValue) {
+        MiaoGlobalConfig miaoGlobalConfig = getGlobalConfig(configName);
+        return miaoGlobalConfig == null ? null : miaoGlobalConfig.key(path, type, defaultValue);
+    }
+    public static <T> ConfigKey<T> configKey(String configName, String path, Class<T> type) {
+        return configKey(configName, path, type, null);
+    }
+    /**
+     * 设置是否使用编译期生成的绑定器（默认开启，没有生成绑定器的类始终使用反射）
+     * @param enabled 是否开启
+     */
+    public static void setBinderEnabled(boolean enabled) {
+        binderEnabled = enabled;
+    }
+
+    public static boolean isBinderEnabled() {
+        return binderEnabled;
+    }
+    //配置文件重载后，让已有的全局配置指向新的配置文件
+    static void updateGlobalConfig(String configName, MiaoConfigFileManager.MiaoConfigFile miaoConfigFile) {
+        MiaoGlobalConfig miaoGlobalConfig = miaoGlobalConfigs.get(configName);
+        if (miaoGlobalConfig != null) {
+            miaoGlobalConfig.setMiaoConfigFile(miaoConfigFile);
+        }
+    }
     public static boolean getHasGlobalConfig(String configName){
         return miaoGlobalConfigs.containsKey(configName);
     }
@@ -5,37 +5,243 @@ import com.tcddm.miaoconfig.exception.MiaoConfigReadException;
 import com.tcddm.miaoconfig.exception.MiaoConfigSaveException;
 import com.tcddm.miaoconfig.parser.MiaoConfigParser;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 
 public class MiaoConfigFileManager{
     private static final MiaoLogger logger=MiaoLogger.getLogger(MiaoConfigFileManager.class);
-    private  final Map<String,MiaoConfigFile> CONFIGS=new ConcurrentHashMap<>();
+    //所有配置文件的当前快照，添加和重载时整体替换
+    private volatile MiaoConfigSnapshot snapshot = MiaoConfigSnapshot.EMPTY;
+    //替换快照时的锁，保证版本号连续且不丢失并发的修改
+    private final Object publishLock = new Object();
     private final Map<String, Lock> fileLocks = new ConcurrentHashMap<>();
-    public MiaoConfigFile getForName(String name){return CONFIGS.get(name);}
+    //默认的防抖时间（毫秒）
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+    private volatile MiaoConfigWatcher watcher;
+    //配置名称 -> 变化监听器
+    private final Map<String, List<MiaoConfigChangeListener>> changeListeners = new ConcurrentHashMap<>();
+    //配置名称 -> 写入方式，没有设置时使用defaultSaveMode
+    private final Map<String, MiaoSaveMode> saveModes = new ConcurrentHashMap<>();
+    private volatile MiaoSaveMode defaultSaveMode = MiaoSaveMode.DIRECT;
+    //延迟写入：延迟时间（毫秒），小于0表示关闭
+    private volatile long writeBehindMillis = -1;
+    private volatile ScheduledExecutorService saveExecutor;
+    //等待写入的配置名称
+    private final Set<String> dirtyConfigs = ConcurrentHashMap.newKeySet();
+    private boolean shutdownHookAdded = false;
+    //添加配置文件时是否延迟加载
+    private volatile boolean lazyLoad = false;
+    //写入文件时的缓冲区大小
+    private static final int WRITE_BUFFER_SIZE = 8192;
+    //不使用内存映射
+    static final long MMAP_DISABLED = -1;
+    //不小于此大小（字节）的文件使用内存映射读取，小于0表示不使用（默认不使用）
+    private volatile long mmapThreshold = MMAP_DISABLED;
+    public MiaoConfigFile getForName(String name){return snapshot.get(name);}
+
+    /**
+     * 获取所有配置文件的当前快照，在一次请求中持有同一个快照可以保证读取到的配置来自同一个版本
+     * @return 快照
+     */
+    public MiaoConfigSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 获取当前快照的版本
+     * @return 版本
+     */
+    public long getSnapshotVersion() {
+        return snapshot.getVersion();
+    }
+    //在当前快照的基础上发布新的配置文件，所有修改在同一个版本中生效
+    private void publish(Map<String, MiaoConfigFile> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        synchronized (publishLock) {
+            snapshot = snapshot.with(changes);
+        }
+    }
+
+    /**
+     * 设置配置文件的写入方式
+     * @param configName 配置名称
+     * @param saveMode 写入方式，为null时恢复默认
+     * @return this
+     */
+    public MiaoConfigFileManager setSaveMode(String configName, MiaoSaveMode saveMode) {
+        if (saveMode == null) {
+            saveModes.remove(configName);
+        } else {
+            saveModes.put(configName, saveMode);
+        }
+        return this;
+    }
+
+    public MiaoSaveMode getSaveMode(String configName) {
+        return saveModes.getOrDefault(configName, defaultSaveMode);
+    }
+
+    /**
+     * 设置默认的写入方式（初始为DIRECT）
+     * @param saveMode 写入方式
+     * @return this
+     */
+    public MiaoConfigFileManager setDefaultSaveMode(MiaoSaveMode saveMode) {
+        if (saveMode != null) {
+            defaultSaveMode = saveMode;
+        }
+        return this;
+    }
     public MiaoConfigFileManager addConfigFile(String name, Path path){
         if(ensureFileExists(path)){
-            try {
-                CONFIGS.put(name,new MiaoConfigFile(path,getConfigData(path)));
-            } catch (Exception e) {
-                logger.error("添加反序列化缓存失败: {}",e.getMessage());
-                CONFIGS.put(name,new MiaoConfigFile(path,new ConcurrentHashMap<>()));
+            register(name,lazyLoad?new MiaoConfigFile(path,mmapThreshold):loadConfigFile(path));
+        }
+        return this;
+    }
+
+    /**
+     * 设置之后添加的配置文件是否延迟加载：添加时只记录路径，第一次访问配置时才读取和解析
+     * @param lazyLoad 是否延迟加载（默认关闭）
+     * @return this
+     */
+    public MiaoConfigFileManager setLazyLoad(boolean lazyLoad) {
+        this.lazyLoad = lazyLoad;
+        return this;
+    }
+
+    public boolean isLazyLoad() {
+        return lazyLoad;
+    }
+
+    /**
+     * 设置使用内存映射读取的文件大小阈值（默认关闭），大文件直接从映射的内存解析，不再复制为字节数组和字符串
+     * 注意：映射期间文件被其他进程截断时，读取可能抛出InternalError甚至导致进程崩溃（SIGBUS）；
+     * Windows下文件被映射期间无法被替换，会导致原子写入失败。只应对不会被外部修改的大文件开启
+     * @param mmapThreshold 阈值（字节），小于0表示不使用内存映射
+     * @return this
+     */
+    public MiaoConfigFileManager setMmapThreshold(long mmapThreshold) {
+        this.mmapThreshold = mmapThreshold;
+        return this;
+    }
+
+    public long getMmapThreshold() {
+        return mmapThreshold;
+    }
+    //读取配置文件，失败时使用空配置
+    private MiaoConfigFile loadConfigFile(Path path){
+        try {
+            return readConfigFile(path, mmapThreshold);
+        } catch (Exception e) {
+            logger.error("添加反序列化缓存失败: {}",e.getMessage());
+            return new MiaoConfigFile(path,new ConcurrentHashMap<>());
+        }
+    }
+    private void register(String name, MiaoConfigFile miaoConfigFile){
+        register(Collections.singletonMap(name, miaoConfigFile));
+    }
+    private void register(Map<String, MiaoConfigFile> miaoConfigFiles){
+        publish(miaoConfigFiles);
+        MiaoConfigWatcher current = watcher;
+        if (current != null) {
+            for (Map.Entry<String, MiaoConfigFile> entry : miaoConfigFiles.entrySet()) {
+                current.register(entry.getKey(), entry.getValue().getFilePath());
             }
         }
+    }
+
+    /**
+     * 开始监听已添加的配置文件（之后添加的文件也会被监听），文件变化后自动重载并重新注入绑定的实例
+     * @return this
+     */
+    public MiaoConfigFileManager startWatch() {
+        return startWatch(DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * 开始监听已添加的配置文件
+     * @param debounceMillis 防抖时间，在此时间内的连续变化只会重载一次
+     * @return this
+     */
+    public synchronized MiaoConfigFileManager startWatch(long debounceMillis) {
+        if (watcher != null) {
+            logger.debug("配置文件监听已启动");
+            return this;
+        }
+        try {
+            MiaoConfigWatcher newWatcher = new MiaoConfigWatcher(debounceMillis);
+            for (Map.Entry<String, MiaoConfigFile> entry : snapshot.files().entrySet()) {
+                newWatcher.register(entry.getKey(), entry.getValue().getFilePath());
+            }
+            watcher = newWatcher;
+            logger.info("配置文件监听已启动");
+        } catch (IOException e) {
+            logger.error("启动配置文件监听失败: {}", e.getMessage());
+        }
         return this;
     }
+
+    /**
+     * 停止监听
+     */
+    public synchronized void stopWatch() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+            logger.info("配置文件监听已停止");
+        }
+    }
+
+    public boolean isWatching() {
+        return watcher != null;
+    }
     public MiaoConfigFileManager addConfigFile(String path) {
         //创建Path
         Path configPath = Paths.get(path);
@@ -60,22 +266,71 @@ public class MiaoConfigFileManager{
         return this;
     }
     public MiaoConfigFileManager addConfigFilePath(String path) {
+        return addConfigFilePath(path, 1);
+    }
+    /**
+     * 添加目录下所有支持的配置文件（递归子目录，只添加有已注册解析器的文件）
+     * @param path 目录
+     * @param parallelism 并行读取和解析的线程数，小于等于1时逐个读取
+     * @return this
+     */
+    public MiaoConfigFileManager addConfigFilePath(String path, int parallelism) {
         //使用NIO的Path替代File处理目录
         Path dirPath = Paths.get(path);
-        List<Path> filePaths = new ArrayList<>();
+        List<Path> filePaths;
 
-        try {
-            //使用NIO的Files.walk()递归遍历目录（替代原有的getAllFiles()方法）
-            //最大深度设置为Integer.MAX_VALUE以遍历所有子目录
-            Files.walk(dirPath, Integer.MAX_VALUE)
-                    .forEach(filePaths::add);    // 收集所有文件路径
+        //使用NIO的Files.walk()递归遍历目录，最大深度设置为Integer.MAX_VALUE以遍历所有子目录
+        try (Stream<Path> stream = Files.walk(dirPath, Integer.MAX_VALUE)) {
+            filePaths = stream
+                    .filter(Files::isRegularFile)
+                    .filter(filePath -> MiaoConfigFactory.isSupported(filePath.getFileName().toString()))
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            logger.error("添加配置文件夹失败: {}", e.getMessage());
+            return this;
+        }
 
-            //遍历所有文件路径并添加配置
+        //延迟加载时不需要读取，直接逐个添加
+        if (parallelism <= 1 || filePaths.size() <= 1 || lazyLoad) {
             for (Path filePath : filePaths) {
                 addConfigFile(filePath);
             }
-        } catch (Exception e) {
-            logger.error("添加配置文件夹失败: {}", e.getMessage());
+            return this;
+        }
+
+        //并行读取和解析，之后按遍历顺序注册（同名文件仍然是后遍历到的生效）
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, filePaths.size()), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "MiaoConfig-load-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Callable<MiaoConfigFile>> tasks = new ArrayList<>(filePaths.size());
+            for (Path filePath : filePaths) {
+                tasks.add(() -> loadConfigFile(filePath));
+            }
+            List<Future<MiaoConfigFile>> futures = executor.invokeAll(tasks);
+            //整个目录在同一个快照版本中生效
+            Map<String, MiaoConfigFile> loaded = new LinkedHashMap<>();
+            for (int i = 0; i < futures.size(); i++) {
+                Path filePath = filePaths.get(i);
+                try {
+                    loaded.put(getFileNameWithoutExtension(filePath.getFileName().toString()), futures.get(i).get());
+                } catch (ExecutionException e) {
+                    logger.error("添加配置文件失败: {}", e.getCause().getMessage());
+                }
+            }
+            register(loaded);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("添加配置文件夹被中断: {}", path);
+        } finally {
+            executor.shutdownNow();
         }
 
         return this;
@@ -124,9 +379,19 @@ public class MiaoConfigFileManager{
             return false;
         }
     }
-    private static String readFileToString(Path path) throws IOException {
-        //使用NIO的Files工具类读取所有字节并转换为字符串
-        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    //读取文件内容：不小于内存映射阈值的文件使用内存映射，否则读入堆内
+    private static ByteBuffer readContent(Path path, long threshold) throws IOException {
+        if (threshold < 0) {
+            return ByteBuffer.wrap(Files.readAllBytes(path));
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= threshold && size <= Integer.MAX_VALUE) {
+                //映射在通道关闭后仍然有效
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(path));
     }
 
     public static Map<String, Object> getConfigData(String configName) throws Exception {
@@ -141,25 +406,378 @@ public class MiaoConfigFileManager{
             throw new MiaoConfigReadException(path != null ? path.toString() : "null", "配置文件不存在或不是常规文件");
         }
 
-        //读取文件内容（使用NIO路径）
-        String content = readFileToString(path);
-
         //解析配置
         MiaoConfigParser miaoConfigParser = MiaoConfigFactory.getParser(path.getFileName().toString());
 
+        //直接从字节解析，不构建中间字符串
+        return miaoConfigParser.parse(readContent(path, MMAP_DISABLED));
+    }
 
-        return miaoConfigParser.parse(content);
+    //读取并解析配置文件，同时记录文件状态用于之后判断是否变化
+    static MiaoConfigFile readConfigFile(Path path, long mmapThreshold) throws Exception {
+        MiaoConfigFile miaoConfigFile = new MiaoConfigFile(path, mmapThreshold);
+        miaoConfigFile.read();
+        return miaoConfigFile;
+    }
+
+    /**
+     * 配置文件状态（修改时间、大小、内容哈希），用于跳过没有变化的重载
+     */
+    public static final class FileStamp {
+        private final long lastModified;
+        private final long size;
+        private final long hash;
+
+        public FileStamp(long lastModified, long size, long hash) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.hash = hash;
+        }
+
+        //不修改缓冲区的position
+        static long hash(ByteBuffer buffer) {
+            CRC32 crc32 = new CRC32();
+            crc32.update(buffer.duplicate());
+            return crc32.getValue();
+        }
+
+        //修改时间和大小都没有变化
+        boolean matches(BasicFileAttributes attributes) {
+            return lastModified == attributes.lastModifiedTime().toMillis() && size == attributes.size();
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getHash() {
+            return hash;
+        }
     }
     public static class MiaoConfigFile{
         private final Path filePath;
-        private final Map<String,Object> config;
-        private boolean isEdit=false;
+        //读取时的内存映射阈值，小于0表示不使用
+        private final long mmapThreshold;
+        //当前的不可变快照，延迟加载时在第一次访问前为null
+        private volatile Snapshot snapshot;
+        //使用此配置文件的全局配置，修改后通知其刷新句柄
+        private volatile MiaoGlobalConfig globalConfig;
+        //最后一次读取或写入时的文件状态
+        private volatile FileStamp stamp;
+        private volatile boolean isEdit=false;
 
 
         public MiaoConfigFile(Path filePath, Map<String, Object> config) {
             this.filePath = filePath;
-            this.config = config;
+            this.mmapThreshold = MMAP_DISABLED;
+            this.snapshot = Snapshot.of(config);
+        }
+
+        /**
+         * 延迟加载的配置文件，第一次访问配置时才读取和解析
+         * @param filePath 配置文件路径
+         */
+        public MiaoConfigFile(Path filePath) {
+            this(filePath, MMAP_DISABLED);
+        }
 
+        MiaoConfigFile(Path filePath, long mmapThreshold) {
+            this.filePath = filePath;
+            this.mmapThreshold = mmapThreshold;
+        }
+
+        /**
+         * 配置的不可变快照：配置树和扁平索引一起发布
+         * 配置树逐层只读（各级Map、List、Set都是只读的副本），发布后不会再被修改；
+         * 修改配置时只复制修改路径上的节点，扁平索引只记录增量，读取方无需加锁，也不会看到修改到一半的配置
+         */
+        static final class Snapshot {
+            //索引增量超过此数量时合并为新的基础索引
+            private static final int MAX_DELTA_SIZE = 64;
+            //索引增量中表示路径已被删除
+            private static final Object REMOVED = new Object();
+            //配置树（逐层只读）
+            private final Map<String,Object> config;
+            //完整路径 -> 值 的扁平索引：基础索引加上之后修改的增量，读取时最多两次哈希查找，两者发布后都不再修改
+            private final Map<String,Object> base;
+            private final Map<String,Object> delta;
+            //每次内存中的配置被修改时递增，用于让缓存失效
+            private final int version;
+
+            private Snapshot(Map<String,Object> config, Map<String,Object> base, Map<String,Object> delta, int version) {
+                this.config = config;
+                this.base = base;
+                this.delta = delta;
+                this.version = version;
+            }
+
+            static Snapshot of(Map<String,Object> config) {
+                Map<String,Object> frozen = PathUtils.freezeMap(config);
+                Map<String,Object> index = new HashMap<>();
+                PathUtils.flatten(frozen, null, index);
+                return new Snapshot(frozen, index, Collections.emptyMap(), 0);
+            }
+
+            Object get(String key) {
+                if (!delta.isEmpty()) {
+                    Object value = delta.get(key);
+                    if (value != null) {
+                        return value == REMOVED ? null : value;
+                    }
+                }
+                return base.get(key);
+            }
+
+            //合并增量后的完整索引
+            Map<String,Object> index() {
+                if (delta.isEmpty()) {
+                    return base;
+                }
+                Map<String,Object> index = new HashMap<>(base);
+                merge(index, delta);
+                return index;
+            }
+
+            private static void merge(Map<String,Object> index, Map<String,Object> delta) {
+                for (Map.Entry<String,Object> entry : delta.entrySet()) {
+                    if (entry.getValue() == REMOVED) {
+                        index.remove(entry.getKey());
+                    } else {
+                        index.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+
+        //获取快照，未加载时加载（双重检查，多个线程同时访问也只解析一次）
+        private Snapshot snapshot() {
+            Snapshot current = snapshot;
+            if (current == null) {
+                synchronized (this) {
+                    current = snapshot;
+                    if (current == null) {
+                        try {
+                            read();
+                        } catch (Exception e) {
+                            logger.error("延迟加载配置文件失败: {}", e.getMessage());
+                            snapshot = Snapshot.of(new LinkedHashMap<>());
+                        }
+                        current = snapshot;
+                    }
+                }
+            }
+            return current;
+        }
+
+        //读取并解析文件，构建好快照后再发布
+        private void read() throws Exception {
+            Path path = filePath;
+            if (path == null || !Files.exists(path) || !Files.isRegularFile(path)) {
+                throw new MiaoConfigReadException(path != null ? path.toString() : "null", "配置文件不存在或不是常规文件");
+            }
+            //先读属性再读内容，文件在两者之间被修改时只会导致下次多读一次
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            ByteBuffer content = readContent(path, mmapThreshold);
+            MiaoConfigParser miaoConfigParser = MiaoConfigFactory.getParser(path.getFileName().toString());
+            Snapshot parsed;
+            try {
+                parsed = Snapshot.of(miaoConfigParser.parse(content));
+            } catch (InternalError e) {
+                //内存映射的文件在读取期间被截断
+                throw new MiaoConfigReadException(path.toString(), "读取内存映射的文件失败", e);
+            }
+            stamp = new FileStamp(attributes.lastModifiedTime().toMillis(), content.remaining(), FileStamp.hash(content));
+            snapshot = parsed;
+        }
+
+        /**
+         * 是否已经读取解析
+         * @return 是否已加载
+         */
+        public boolean isLoaded() {
+            return snapshot != null;
+        }
+
+        /**
+         * 根据路径获取值（通过扁平索引，与路径深度无关，不加锁）
+         * @param path 配置路径
+         * @return 对应路径的值，不存在则返回null
+         */
+        public Object getValue(ConfigPath path) {
+            if (path == null || path.size() == 0) {
+                return null;
+            }
+            return snapshot().get(path.getKey());
+        }
+
+        public Object getValue(String path) {
+            if (path == null || path.isEmpty()) {
+                return null;
+            }
+            return getValue(ConfigPath.of(path));
+        }
+
+        /**
+         * 根据路径设置值，生成并发布新的快照
+         * 修改配置必须通过此方法，{@link #getConfig()} 返回的是只读的快照
+         * @param path 配置路径
+         * @param value 值
+         * @return 是否发生了修改
+         */
+        public boolean setValue(ConfigPath path, Object value) {
+            if (path == null || path.size() == 0) {
+                return false;
+            }
+            return setValues(Collections.singletonMap(path, value));
+        }
+
+        public boolean setValue(String path, Object value) {
+            if (path == null || path.isEmpty()) {
+                return false;
+            }
+            return setValue(ConfigPath.of(path), value);
+        }
+
+        /**
+         * 批量设置值，所有修改合并为一个新快照发布
+         * 只复制修改路径上的节点和索引增量，与配置的总大小无关；Map、List等值会被复制为只读的副本
+         * @param values 路径 -> 值（路径可以是String或ConfigPath）
+         * @return 是否发生了修改
+         */
+        public boolean setValues(Map<?, ?> values) {
+            //保存时通常没有需要推送的值，此时不加锁也不分配
+            if (values == null || values.isEmpty()) {
+                return false;
+            }
+            if (!applyValues(values)) {
+                return false;
+            }
+            //在释放配置文件的锁之后刷新句柄：句柄刷新时持有句柄的锁并读取配置文件，
+            //延迟加载的配置文件在读取时需要获取配置文件的锁，在锁内刷新会与注册句柄的线程死锁
+            MiaoGlobalConfig owner = globalConfig;
+            if (owner != null) {
+                owner.refreshKeys();
+            }
+            return true;
+        }
+
+        private synchronized boolean applyValues(Map<?, ?> values) {
+            Snapshot current = snapshot();
+            //本次复制或新建的节点（按身份查找），可以直接修改；其余节点属于已发布的快照
+            Map<Object, Map<String,Object>> fresh = new IdentityHashMap<>();
+            Map<String,Object> root = null;
+            Map<String,Object> delta = null;
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                ConfigPath path = entry.getKey() instanceof ConfigPath
+                        ? (ConfigPath) entry.getKey() : ConfigPath.of(String.valueOf(entry.getKey()));
+                if (path.size() == 0) {
+                    continue;
+                }
+                Object value = PathUtils.freeze(entry.getValue());
+                if (root == null) {
+                    root = new LinkedHashMap<>(current.config);
+                    fresh.put(root, root);
+                }
+                //从树中读取旧值：同一批修改中前面新建的节点还没有写入索引
+                Object oldValue = copyPath(root, path, fresh).get(path.get(path.size() - 1));
+                String key = path.getKey();
+                if (!PathUtils.setValue(root, path, value)) {
+                    continue;
+                }
+                if (delta == null) {
+                    delta = new HashMap<>(current.delta);
+                }
+                if (oldValue instanceof Map<?, ?>) {
+                    //删除旧的子节点
+                    Map<String,Object> children = new HashMap<>();
+                    PathUtils.flatten((Map<?, ?>) oldValue, key, children);
+                    for (String child : children.keySet()) {
+                        delta.put(child, Snapshot.REMOVED);
+                    }
+                }
+                if (value == null) {
+                    delta.put(key, Snapshot.REMOVED);
+                } else {
+                    delta.put(key, value);
+                    if (value instanceof Map<?, ?>) {
+                        PathUtils.flatten((Map<?, ?>) value, key, delta);
+                    }
+                }
+            }
+            if (delta == null) {
+                return false;
+            }
+            Map<String,Object> config = freezePath(root, null, fresh, delta);
+            Map<String,Object> base = current.base;
+            if (delta.size() > Snapshot.MAX_DELTA_SIZE) {
+                base = new HashMap<>(base);
+                Snapshot.merge(base, delta);
+                delta = Collections.emptyMap();
+            }
+            snapshot = new Snapshot(config, base, delta, current.version + 1);
+            isEdit = true;
+            return true;
+        }
+
+        //复制路径上已发布的中间节点（不存在或不是Map时新建），使之后的修改不影响旧快照，返回最后一级的父节点
+        private static Map<String,Object> copyPath(Map<String,Object> root, ConfigPath path, Map<Object, Map<String,Object>> fresh) {
+            Map<String,Object> node = root;
+            for (int i = 0; i < path.size() - 1; i++) {
+                Object next = node.get(path.get(i));
+                Map<String,Object> child = fresh.get(next);
+                if (child == null) {
+                    child = new LinkedHashMap<>();
+                    if (next instanceof Map<?, ?>) {
+                        for (Map.Entry<?, ?> entry : ((Map<?, ?>) next).entrySet()) {
+                            child.put(String.valueOf(entry.getKey()), entry.getValue());
+                        }
+                    }
+                    fresh.put(child, child);
+                    node.put(path.get(i), child);
+                }
+                node = child;
+            }
+            return node;
+        }
+
+        //把本次复制的节点包装为只读，并写入索引增量（只遍历复制过的节点，即修改涉及的分支）
+        private static Map<String,Object> freezePath(Map<String,Object> node, String prefix,
+                                                      Map<Object, Map<String,Object>> fresh, Map<String,Object> delta) {
+            for (Map.Entry<String,Object> entry : node.entrySet()) {
+                Map<String,Object> child = fresh.get(entry.getValue());
+                if (child == null) {
+                    continue;
+                }
+                String childPath = prefix == null ? entry.getKey() : prefix + "." + entry.getKey();
+                Map<String,Object> frozen = freezePath(child, childPath, fresh, delta);
+                entry.setValue(frozen);
+                delta.put(childPath, frozen);
+            }
+            return Collections.unmodifiableMap(node);
+        }
+
+        public FileStamp getStamp() {
+            return stamp;
+        }
+
+        void setStamp(FileStamp stamp) {
+            this.stamp = stamp;
+        }
+
+        void setGlobalConfig(MiaoGlobalConfig globalConfig) {
+            this.globalConfig = globalConfig;
+        }
+
+        /**
+         * 获取内存中配置的修改版本
+         * @return 版本号
+         */
+        public int getVersion() {
+            return snapshot().version;
         }
 
         public boolean isEdit() {
@@ -171,80 +789,395 @@ public class MiaoConfigFileManager{
             return filePath;
         }
 
+        /**
+         * 获取当前配置的只读快照，之后的修改不会影响已获取的快照
+         * 各级Map、List、Set都是只读的（数组除外，不要修改）；需要修改时通过TypeConverter转换会得到可修改的副本
+         * @return 配置
+         */
         public Map<String, Object> getConfig() {
-            return config;
+            return snapshot().config;
+        }
+
+        //扁平索引，未加载时先加载
+        Map<String, Object> index() {
+            return snapshot().index();
         }
 
 
         @Override
         public String toString() {
+            Snapshot current = snapshot;
             return "MiaoConfigFile{" +
                     "filePath=" + filePath +
-                    ", config=" + config +
+                    ", config=" + (current != null ? current.config : "未加载") +
                     ", isEdit=" + isEdit +
                     '}';
         }
     }
-    public void reloadConfig(String configName,boolean isSave) {
-        if (!CONFIGS.containsKey(configName)) {
-            logger.warn("未找到对应配置文件：{}", configName);
-            return;
+    /**
+     * 重载配置文件，文件的大小和内容都没有变化且内存中没有未保存的修改时跳过
+     * @param configName 配置名称
+     * @param isSave 是否先保存当前修改
+     * @return 是否重新解析了配置文件
+     */
+    public boolean reloadConfig(String configName,boolean isSave) {
+        return reloadConfigForChanges(configName,isSave)!=null;
+    }
+    /**
+     * 重载配置文件并与旧配置比较，内容有变化时通知监听器
+     * @param configName 配置名称
+     * @param isSave 是否先保存当前修改
+     * @return 变化的路径，没有重新解析（文件未变化或重载失败）时返回null
+     */
+    List<MiaoConfigChangeEvent> reloadConfigForChanges(String configName,boolean isSave) {
+        return reloadConfigs(Collections.singletonList(configName), isSave).get(configName);
+    }
+
+    /**
+     * 一起重载多个配置文件，所有文件读取完成后再替换为同一个新的快照版本，
+     * 持有快照的读取方不会看到一部分文件是新版本、另一部分是旧版本
+     * 单个文件读取失败时保留旧的配置文件，不影响其他文件
+     * @param configNames 配置名称
+     * @param isSave 是否先保存当前修改
+     * @return 重新解析的配置名称 -> 变化的路径，没有变化或重载失败的配置不包含在内
+     */
+    public Map<String, List<MiaoConfigChangeEvent>> reloadConfigs(Collection<String> configNames, boolean isSave) {
+        return reloadConfigs(configNames, isSave, null);
+    }
+
+    /**
+     * 一起重载多个配置文件，同 {@link #reloadConfigs(Collection, boolean)}
+     * @param configNames 配置名称
+     * @param isSave 是否先保存当前修改
+     * @param executor 读取和解析文件使用的线程池，为null时在当前线程逐个读取
+     * @return 重新解析的配置名称 -> 变化的路径
+     */
+    public Map<String, List<MiaoConfigChangeEvent>> reloadConfigs(Collection<String> configNames, boolean isSave, Executor executor) {
+        //按名称排序后依次加锁，多个重载同时进行时获取文件锁的顺序一致
+        List<String> names = new ArrayList<>();
+        for (String configName : new TreeSet<>(configNames)) {
+            if (snapshot.contains(configName)) {
+                names.add(configName);
+            } else {
+                logger.warn("未找到对应配置文件：{}", configName);
+            }
         }
-        Lock lock = fileLocks.computeIfAbsent(configName, k -> new ReentrantLock());
-        lock.lock();
-        MiaoConfigFile oldConfigFile=null;
+        if (names.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Lock> locks = new ArrayList<>(names.size());
+        Map<String, List<MiaoConfigChangeEvent>> changes = new LinkedHashMap<>();
         try {
-            oldConfigFile = CONFIGS.get(configName);
-            Path configPath = oldConfigFile.getFilePath();
-            //先保存当前修改
-            if(isSave){MiaoConfigFactory.getConfigClazzManager().saveConfig(configName);}
-            //重新加载并添加新配置
-            Map<String, Object> newConfigData = getConfigData(configPath);
-            MiaoConfigFile newConfigFile = new MiaoConfigFile(configPath, newConfigData);
-            //重置编辑状态
-            newConfigFile.cancelEdit();
-            CONFIGS.replace(configName,newConfigFile);
-        } catch (Exception e) {
-            handleConfigError(null, "重载配置文件失败", configName, e);
+            for (String configName : names) {
+                Lock lock = fileLocks.computeIfAbsent(configName, k -> new ReentrantLock());
+                lock.lock();
+                locks.add(lock);
+            }
+            MiaoConfigSnapshot current = snapshot;
+            Map<String, MiaoConfigFile> oldConfigFiles = new LinkedHashMap<>();
+            for (String configName : names) {
+                MiaoConfigFile oldConfigFile = current.get(configName);
+                try {
+                    //先保存当前修改
+                    if (isSave) {
+                        MiaoConfigFactory.getConfigClazzManager().saveConfig(configName);
+                        //延迟写入时需要在重新读取前写入
+                        flush(configName);
+                    }
+                    if (!oldConfigFile.isLoaded()) {
+                        //延迟加载且还没有被访问过，下次访问时会读取最新的文件
+                        logger.debug("配置文件尚未加载，跳过重载: {}", configName);
+                    } else if (isUnchanged(oldConfigFile)) {
+                        logger.debug("配置文件未变化，跳过重载: {}", configName);
+                    } else {
+                        oldConfigFiles.put(configName, oldConfigFile);
+                    }
+                } catch (Exception e) {
+                    handleConfigError(null, "重载配置文件失败", configName, e);
+                }
+            }
+            //在旁边读取新的配置文件，全部完成后一次性替换
+            Map<String, MiaoConfigFile> newConfigFiles = readConfigFiles(oldConfigFiles, executor);
+            publish(newConfigFiles);
+            for (Map.Entry<String, MiaoConfigFile> entry : newConfigFiles.entrySet()) {
+                String configName = entry.getKey();
+                MiaoConfigFile newConfigFile = entry.getValue();
+                MiaoConfigFactory.updateGlobalConfig(configName, newConfigFile);
+                changes.put(configName, diff(configName, oldConfigFiles.get(configName).index(), newConfigFile.index()));
+            }
         } finally {
-            lock.unlock();
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+        //在锁外通知，监听器中可以再次读取或重载配置
+        for (Map.Entry<String, List<MiaoConfigChangeEvent>> entry : changes.entrySet()) {
+            fireChange(entry.getKey(), entry.getValue());
+        }
+        return changes;
+    }
+    //读取并解析配置文件，失败的文件不包含在返回值中
+    private Map<String, MiaoConfigFile> readConfigFiles(Map<String, MiaoConfigFile> oldConfigFiles, Executor executor) {
+        Map<String, MiaoConfigFile> newConfigFiles = new LinkedHashMap<>();
+        if (executor == null || oldConfigFiles.size() <= 1) {
+            for (Map.Entry<String, MiaoConfigFile> entry : oldConfigFiles.entrySet()) {
+                try {
+                    newConfigFiles.put(entry.getKey(), reloadConfigFile(entry.getValue()));
+                } catch (Exception e) {
+                    handleConfigError(null, "重载配置文件失败", entry.getKey(), e);
+                }
+            }
+            return newConfigFiles;
+        }
+        Map<String, CompletableFuture<MiaoConfigFile>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, MiaoConfigFile> entry : oldConfigFiles.entrySet()) {
+            MiaoConfigFile oldConfigFile = entry.getValue();
+            CompletableFuture<MiaoConfigFile> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return reloadConfigFile(oldConfigFile);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor);
+            } catch (RejectedExecutionException e) {
+                logger.debug("读取任务被拒绝，在当前线程执行：{}", entry.getKey());
+                future = new CompletableFuture<>();
+                try {
+                    future.complete(reloadConfigFile(oldConfigFile));
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+            futures.put(entry.getKey(), future);
+        }
+        for (Map.Entry<String, CompletableFuture<MiaoConfigFile>> entry : futures.entrySet()) {
+            try {
+                newConfigFiles.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                handleConfigError(null, "重载配置文件失败", entry.getKey(),
+                        cause instanceof Exception ? (Exception) cause : e);
+            }
+        }
+        return newConfigFiles;
+    }
+    private MiaoConfigFile reloadConfigFile(MiaoConfigFile oldConfigFile) throws Exception {
+        MiaoConfigFile newConfigFile = readConfigFile(oldConfigFile.getFilePath(), mmapThreshold);
+        //重置编辑状态
+        newConfigFile.cancelEdit();
+        return newConfigFile;
+    }
+    //比较新旧扁平索引，只需遍历一次两边的索引
+    //索引中也收录了中间节点的Map，因此新增或删除空对象、子树被替换为{}等只有Map变化的修改也会产生事件
+    //两边都是Map的节点不产生事件，由其子节点的事件表示
+    private static List<MiaoConfigChangeEvent> diff(String configName, Map<String,Object> oldIndex, Map<String,Object> newIndex) {
+        List<MiaoConfigChangeEvent> events = new ArrayList<>();
+        for (Map.Entry<String,Object> entry : oldIndex.entrySet()) {
+            Object oldValue = entry.getValue();
+            Object newValue = newIndex.get(entry.getKey());
+            if (newValue == null) {
+                events.add(new MiaoConfigChangeEvent(configName, ConfigPath.of(entry.getKey()),
+                        MiaoConfigChangeEvent.Type.REMOVED, oldValue, null));
+            } else if (oldValue instanceof Map && newValue instanceof Map) {
+                continue;
+            } else if (!oldValue.equals(newValue)) {
+                //包括Map与其他值之间的替换
+                events.add(new MiaoConfigChangeEvent(configName, ConfigPath.of(entry.getKey()),
+                        MiaoConfigChangeEvent.Type.MODIFIED, oldValue, newValue));
+            }
+        }
+        for (Map.Entry<String,Object> entry : newIndex.entrySet()) {
+            if (!oldIndex.containsKey(entry.getKey())) {
+                events.add(new MiaoConfigChangeEvent(configName, ConfigPath.of(entry.getKey()),
+                        MiaoConfigChangeEvent.Type.ADDED, null, entry.getValue()));
+            }
+        }
+        return events;
+    }
+    private void fireChange(String configName, List<MiaoConfigChangeEvent> events) {
+        List<MiaoConfigChangeListener> listeners = changeListeners.get(configName);
+        if (events.isEmpty() || listeners == null) {
+            return;
+        }
+        List<MiaoConfigChangeEvent> unmodifiable = Collections.unmodifiableList(events);
+        for (MiaoConfigChangeListener listener : listeners) {
+            try {
+                listener.onChange(unmodifiable);
+            } catch (Exception e) {
+                logger.error("配置变化监听器执行失败: {}", e.getMessage());
+            }
         }
     }
+
+    /**
+     * 添加配置变化监听器，配置文件重载且内容有变化时调用
+     * @param configName 配置名称
+     * @param listener 监听器
+     * @return this
+     */
+    public MiaoConfigFileManager addChangeListener(String configName, MiaoConfigChangeListener listener) {
+        changeListeners.computeIfAbsent(configName, k -> new CopyOnWriteArrayList<>()).add(listener);
+        return this;
+    }
+
+    /**
+     * 移除配置变化监听器
+     * @param configName 配置名称
+     * @param listener 监听器
+     */
+    public void removeChangeListener(String configName, MiaoConfigChangeListener listener) {
+        List<MiaoConfigChangeListener> listeners = changeListeners.get(configName);
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+    //判断文件与上次读取/写入时相比是否没有变化：大小不同时一定有变化，大小相同时比较内容哈希
+    //不能只凭修改时间和大小判断：同一个时间戳精度内的等长修改，或保留修改时间的编辑器，都会被永久跳过
+    private boolean isUnchanged(MiaoConfigFile miaoConfigFile) throws IOException {
+        FileStamp stamp = miaoConfigFile.getStamp();
+        Path path = miaoConfigFile.getFilePath();
+        if (stamp == null || miaoConfigFile.isEdit() || !Files.isRegularFile(path)) {
+            return false;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (stamp.getSize() != attributes.size()) {
+            return false;
+        }
+        ByteBuffer content = readContent(path, mmapThreshold);
+        if (content.remaining() == stamp.getSize() && FileStamp.hash(content) == stamp.getHash()) {
+            if (!stamp.matches(attributes)) {
+                //只是修改时间变了
+                miaoConfigFile.setStamp(new FileStamp(attributes.lastModifiedTime().toMillis(), content.remaining(), stamp.getHash()));
+            }
+            return true;
+        }
+        return false;
+    }
+    /**
+     * 开启延迟写入：保存时只标记配置，延迟时间内对同一配置的多次保存合并为一次后台写入
+     * 程序退出时会自动写入所有未写入的配置
+     * @param delayMillis 延迟时间（毫秒）
+     * @return this
+     */
+    public synchronized MiaoConfigFileManager enableWriteBehind(long delayMillis) {
+        if (saveExecutor == null) {
+            saveExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "MiaoConfig-save");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (!shutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "MiaoConfig-flush"));
+            shutdownHookAdded = true;
+        }
+        writeBehindMillis = Math.max(0, delayMillis);
+        logger.info("已开启延迟写入，延迟{}毫秒", writeBehindMillis);
+        return this;
+    }
+
+    /**
+     * 关闭延迟写入，并立即写入所有未写入的配置
+     */
+    public synchronized void disableWriteBehind() {
+        writeBehindMillis = -1;
+        flush();
+        if (saveExecutor != null) {
+            saveExecutor.shutdown();
+            saveExecutor = null;
+        }
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehindMillis >= 0;
+    }
+
+    /**
+     * 立即写入所有延迟写入中的配置
+     */
+    public void flush() {
+        for (String configName : dirtyConfigs) {
+            flush(configName);
+        }
+    }
+
+    /**
+     * 立即写入延迟写入中的配置
+     * @param configName 配置名称
+     */
+    public void flush(String configName) {
+        if (dirtyConfigs.remove(configName)) {
+            writeConfig(configName, null);
+        }
+    }
+
+    //标记配置等待写入，同一配置在写入前只会安排一次
+    private void scheduleSave(String configName, long delayMillis) {
+        if (!dirtyConfigs.add(configName)) {
+            return;
+        }
+        ScheduledExecutorService executor = saveExecutor;
+        try {
+            if (executor != null) {
+                executor.schedule(() -> flush(configName), delayMillis, TimeUnit.MILLISECONDS);
+                return;
+            }
+        } catch (RejectedExecutionException e) {
+            logger.debug("延迟写入已关闭，直接写入: {}", configName);
+        }
+        flush(configName);
+    }
     public void saveAllConfig(){
-        for(String configName:CONFIGS.keySet()){
+        for(String configName:snapshot.getConfigNames()){
             saveConfig(configName);
         }
     }
     public void saveConfig(String configName) {saveConfig(configName,null);}
     public void saveConfig(String configName,String instanceName) {
-        if(!CONFIGS.containsKey(configName)){
+        if(!snapshot.contains(configName)){
             logger.warn("未找到对应配置文件：{}",configName);
             return;
         }
+        long delayMillis = writeBehindMillis;
+        if (delayMillis >= 0) {
+            scheduleSave(configName, delayMillis);
+            return;
+        }
+        writeConfig(configName, instanceName);
+    }
+    //序列化并写入文件
+    private void writeConfig(String configName,String instanceName) {
         Lock lock = fileLocks.computeIfAbsent(configName, k -> new ReentrantLock());
         lock.lock();
 
         try {
             //获取配置文件
-            MiaoConfigFileManager.MiaoConfigFile miaoConfigFile = CONFIGS.get(configName);
+            MiaoConfigFileManager.MiaoConfigFile miaoConfigFile = snapshot.get(configName);
+            if (!miaoConfigFile.isLoaded()) {
+                //没有加载过就不可能被修改
+                logger.debug("配置文件尚未加载，无需保存: {}", configName);
+                return;
+            }
             Path configPath = miaoConfigFile.getFilePath(); // 替换File为Path
             //NIO方式检查文件是否存在
             if (configPath == null || !Files.exists(configPath) || !Files.isRegularFile(configPath)) {
                 handleConfigError(null, "配置文件不存在或不是常规文件", configName, null);
                 return;
             }
-            //反序列化
+            //序列化
             MiaoConfigParser miaoConfigParser = MiaoConfigFactory.getParser(configPath.getFileName().toString());
-            Map<String, Object> configMap = CONFIGS.get(configName).getConfig();
-            String temp = miaoConfigParser.serialize(configMap);
-            //写入文件
-            Files.write(
-                    configPath,
-                    temp.getBytes(StandardCharsets.UTF_8),
-                    StandardOpenOption.WRITE,
-                    StandardOpenOption.TRUNCATE_EXISTING,
-                    StandardOpenOption.CREATE
-            );
+            FileStamp stamp;
+            try {
+                //写入文件
+                stamp = writeFile(configPath, miaoConfigParser, miaoConfigFile, getSaveMode(configName));
+            } catch (Exception e) {
+                miaoConfigFile.setEdit();
+                throw e;
+            }
+            //记录写入后的文件状态，避免之后的重载重复解析
+            miaoConfigFile.setStamp(stamp);
             //完成
             if(instanceName!=null){
                 logger.info("配置保存完成: {}",instanceName);
@@ -258,6 +1191,81 @@ public class MiaoConfigFileManager{
             lock.unlock();
         }
     }
+    //按写入方式写入文件，返回写入后的文件状态
+    private static FileStamp writeFile(Path configPath, MiaoConfigParser parser, MiaoConfigFile miaoConfigFile, MiaoSaveMode saveMode) throws Exception {
+        if (saveMode == MiaoSaveMode.DIRECT) {
+            //先序列化到内存，成功后才截断并写入文件，序列化失败时原文件保持不变（只有ATOMIC方式是流式写入）
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(WRITE_BUFFER_SIZE);
+            long hash = serializeTo(buffer, parser, miaoConfigFile);
+            try (FileChannel channel = FileChannel.open(configPath,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE)) {
+                //直接从缓冲区写出，不再复制一份字节数组
+                buffer.writeTo(Channels.newOutputStream(channel));
+            }
+            return new FileStamp(Files.getLastModifiedTime(configPath).toMillis(), buffer.size(), hash);
+        }
+        boolean fsync = saveMode == MiaoSaveMode.ATOMIC_FSYNC;
+        Path dir = configPath.toAbsolutePath().getParent();
+        //临时文件必须与目标在同一目录（同一文件系统），才能原子重命名
+        Path tempFile = Files.createTempFile(dir, "." + configPath.getFileName(), ".tmp");
+        long size;
+        long hash;
+        try {
+            copyPermissions(configPath, tempFile);
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                //写入临时文件，失败时只会删除临时文件，可以直接流式写入
+                //不关闭此输出流（会关闭通道），由try关闭通道
+                hash = serializeTo(new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE),
+                        parser, miaoConfigFile);
+                size = channel.position();
+                if (fsync) {
+                    channel.force(true);
+                }
+            }
+            try {
+                Files.move(tempFile, configPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                logger.warn("文件系统不支持原子重命名，改为直接替换: {}", configPath);
+                Files.move(tempFile, configPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        if (fsync) {
+            forceDirectory(dir);
+        }
+        return new FileStamp(Files.getLastModifiedTime(configPath).toMillis(), size, hash);
+    }
+    //序列化并写入输出流，返回写入内容的CRC32（不关闭输出流）
+    private static long serializeTo(OutputStream target, MiaoConfigParser parser, MiaoConfigFile miaoConfigFile) throws Exception {
+        CheckedOutputStream out = new CheckedOutputStream(target, new CRC32());
+        Map<String, Object> config;
+        //与修改互斥地取得快照，之后的修改会重新标记编辑状态
+        synchronized (miaoConfigFile) {
+            miaoConfigFile.cancelEdit();
+            config = miaoConfigFile.getConfig();
+        }
+        //快照不会再被修改，序列化期间不阻塞其他线程的修改
+        parser.serialize(config, out);
+        out.flush();
+        return out.getChecksum().getValue();
+    }
+    //保留原文件的权限（仅支持POSIX文件系统）
+    private static void copyPermissions(Path source, Path target) {
+        try {
+            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+        } catch (UnsupportedOperationException | IOException e) {
+            logger.debug("无法复制文件权限: {}", e.getMessage());
+        }
+    }
+    //将目录项刷到磁盘，使重命名本身持久化（部分系统不支持打开目录，忽略即可）
+    private static void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("无法刷新目录: {}", e.getMessage());
+        }
+    }
     private void handleConfigError(String instance, String message, String configName, Exception e) {
 
         MiaoConfigSaveException ex = new MiaoConfigSaveException(message, configName);
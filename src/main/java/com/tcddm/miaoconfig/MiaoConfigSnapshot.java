@@ -0,0 +1,81 @@
+package com.tcddm.miaoconfig;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 某一时刻所有配置文件的不可变快照
+ * 添加或重载配置文件时会整体替换为新的快照，一次重载多个文件时所有文件在同一个版本中生效
+ * 在一次请求中持有同一个快照，读取到的多个配置文件始终来自同一个版本，不需要加锁
+ * 注意：快照固定的是配置文件对象，之后的重载不会影响已持有的快照，但通过setValue等方法在内存中的修改仍然可见
+ * 通过 {@link MiaoConfigFileManager#snapshot()} 获取
+ */
+public final class MiaoConfigSnapshot {
+    static final MiaoConfigSnapshot EMPTY = new MiaoConfigSnapshot(0, Collections.emptyMap());
+
+    private final long version;
+    private final Map<String, MiaoConfigFileManager.MiaoConfigFile> files;
+
+    private MiaoConfigSnapshot(long version, Map<String, MiaoConfigFileManager.MiaoConfigFile> files) {
+        this.version = version;
+        this.files = files;
+    }
+
+    /**
+     * 在当前快照的基础上替换或添加配置文件，生成下一个版本
+     * @param changes 配置名称 -> 新的配置文件
+     * @return 新的快照
+     */
+    MiaoConfigSnapshot with(Map<String, MiaoConfigFileManager.MiaoConfigFile> changes) {
+        Map<String, MiaoConfigFileManager.MiaoConfigFile> copy = new LinkedHashMap<>(files);
+        copy.putAll(changes);
+        return new MiaoConfigSnapshot(version + 1, Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * 获取快照版本，每次添加或重载配置文件后加1
+     * @return 版本
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 获取配置文件
+     * @param configName 配置名称
+     * @return 配置文件，不存在时返回null
+     */
+    public MiaoConfigFileManager.MiaoConfigFile get(String configName) {
+        return files.get(configName);
+    }
+
+    public boolean contains(String configName) {
+        return files.containsKey(configName);
+    }
+
+    /**
+     * 读取配置值
+     * @param configName 配置名称
+     * @param path 配置路径
+     * @return 值，配置文件或路径不存在时返回null
+     */
+    public Object getValue(String configName, ConfigPath path) {
+        MiaoConfigFileManager.MiaoConfigFile file = files.get(configName);
+        return file == null ? null : file.getValue(path);
+    }
+
+    public Object getValue(String configName, String path) {
+        MiaoConfigFileManager.MiaoConfigFile file = files.get(configName);
+        return file == null ? null : file.getValue(path);
+    }
+
+    public Set<String> getConfigNames() {
+        return files.keySet();
+    }
+
+    Map<String, MiaoConfigFileManager.MiaoConfigFile> files() {
+        return files;
+    }
+}
@@ -0,0 +1,150 @@
+package com.tcddm.miaoconfig;
+
+import com.tcddm.miaoconfig.egg.MiaoLogger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于WatchService的配置文件监听
+ * 监听已添加配置文件所在的目录，文件变化后经过防抖，只重载变化的文件并重新注入绑定该配置的实例
+ * 通过 {@link MiaoConfigFileManager#startWatch()} 启动
+ */
+public class MiaoConfigWatcher {
+    private static final MiaoLogger logger = MiaoLogger.getLogger(MiaoConfigWatcher.class);
+
+    private final WatchService watchService;
+    private final long debounceMillis;
+    //已注册的目录
+    private final Map<Path, WatchKey> directories = new ConcurrentHashMap<>();
+    //配置文件的绝对路径 -> 配置名称
+    private final Map<Path, Set<String>> files = new ConcurrentHashMap<>();
+    //等待执行的重载，同一配置在防抖时间内的多次变化只重载一次
+    private final Map<String, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final Thread watchThread;
+    private volatile boolean running = true;
+
+    MiaoConfigWatcher(long debounceMillis) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.debounceMillis = debounceMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "MiaoConfigWatcher-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchThread = new Thread(this::watchLoop, "MiaoConfigWatcher");
+        this.watchThread.setDaemon(true);
+        this.watchThread.start();
+    }
+
+    /**
+     * 监听配置文件
+     * @param configName 配置名称
+     * @param filePath 配置文件路径
+     */
+    void register(String configName, Path filePath) {
+        Path absolute = filePath.toAbsolutePath().normalize();
+        Path dir = absolute.getParent();
+        if (dir == null) {
+            return;
+        }
+        files.computeIfAbsent(absolute, k -> ConcurrentHashMap.newKeySet()).add(configName);
+        directories.computeIfAbsent(dir, k -> {
+            try {
+                logger.debug("开始监听目录: {}", k);
+                return k.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException e) {
+                logger.error("监听目录失败: {}", e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 停止监听
+     */
+    void close() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("关闭监听失败: {}", e.getMessage());
+        }
+        scheduler.shutdownNow();
+        watchThread.interrupt();
+    }
+
+    private void watchLoop() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    //事件丢失，重载该目录下的所有配置
+                    for (Map.Entry<Path, Set<String>> entry : files.entrySet()) {
+                        if (dir.equals(entry.getKey().getParent())) {
+                            entry.getValue().forEach(this::schedule);
+                        }
+                    }
+                    continue;
+                }
+                Set<String> configNames = files.get(dir.resolve((Path) event.context()));
+                if (configNames != null) {
+                    configNames.forEach(this::schedule);
+                }
+            }
+            if (!key.reset()) {
+                directories.remove(dir);
+            }
+        }
+    }
+
+    //防抖：取消还未执行的重载，重新计时
+    private void schedule(String configName) {
+        pending.compute(configName, (name, previous) -> {
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            return scheduler.schedule(() -> reload(name), debounceMillis, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private void reload(String configName) {
+        pending.remove(configName);
+        logger.info("检测到配置文件变化: {}", configName);
+        try {
+            MiaoConfigFactory.getConfigClazzManager().reloadConfig(configName);
+        } catch (Exception e) {
+            logger.error("自动重载配置失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.tcddm.miaoconfig;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * 字段访问器
+ * 每个字段只创建一次，Java 9+ 使用MethodHandle访问，Java 8 或创建MethodHandle失败时退回反射
+ * 基本类型字段的配置值可以无损写入时通过 {@link #setPrimitive(Object, Object)} 直接调用基本类型的setter，
+ * 不经过TypeConverter，也不会为转换结果重新装箱
+ */
+abstract class MiaoFieldAccessor {
+    //VarHandle从Java 9开始提供，用于判断当前运行的JDK是否为Java 8
+    private static final boolean USE_HANDLE = hasClass("java.lang.invoke.VarHandle");
+
+    protected final Field field;
+    protected final Class<?> type;
+
+    private MiaoFieldAccessor(Field field) {
+        this.field = field;
+        this.type = field.getType();
+    }
+
+    /**
+     * 为字段创建访问器
+     * @param field 字段（需已经setAccessible）
+     * @return 访问器
+     */
+    static MiaoFieldAccessor of(Field field) {
+        if (USE_HANDLE) {
+            try {
+                return new HandleAccessor(field);
+            } catch (IllegalAccessException | RuntimeException e) {
+                //例如final字段无法创建setter，退回反射
+            }
+        }
+        return new ReflectAccessor(field);
+    }
+
+    /**
+     * 读取字段值（基本类型会被装箱）
+     */
+    abstract Object get(Object target);
+
+    abstract void setInt(Object target, int value);
+
+    abstract void setLong(Object target, long value);
+
+    abstract void setDouble(Object target, double value);
+
+    abstract void setFloat(Object target, float value);
+
+    abstract void setShort(Object target, short value);
+
+    abstract void setByte(Object target, byte value);
+
+    abstract void setChar(Object target, char value);
+
+    abstract void setBoolean(Object target, boolean value);
+
+    abstract void setObject(Object target, Object value);
+
+    /**
+     * 直接把配置值写入基本类型字段，结果与先经过TypeConverter转换再调用 {@link #set(Object, Object)} 相同
+     * 只处理无需解析的情况：值已经是字段的包装类型，或是可以无损放宽的整数（如Integer写入long字段，要求目标类型仍使用内置转换器）
+     * @param target 实例
+     * @param value 配置中读取的原始值
+     * @return 是否已写入，未写入时需要先转换再调用set
+     */
+    boolean setPrimitive(Object target, Object value) {
+        if (!type.isPrimitive()) {
+            return false;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            //int范围内的整数
+            int intValue = ((Number) value).intValue();
+            if (type == int.class) {
+                if (!(value instanceof Integer) && !TypeConverter.isBuiltin(int.class)) {
+                    return false;
+                }
+                setInt(target, intValue);
+            } else if (type == long.class && TypeConverter.isBuiltin(long.class)) {
+                setLong(target, intValue);
+            } else if (type == double.class && TypeConverter.isBuiltin(double.class)) {
+                setDouble(target, intValue);
+            } else if (type == short.class && value instanceof Short) {
+                setShort(target, (Short) value);
+            } else if (type == byte.class && value instanceof Byte) {
+                setByte(target, (Byte) value);
+            } else {
+                return false;
+            }
+            return true;
+        }
+        if (value instanceof Long) {
+            if (type == long.class) {
+                setLong(target, (Long) value);
+            } else if (type == double.class && TypeConverter.isBuiltin(double.class)) {
+                setDouble(target, (Long) value);
+            } else {
+                return false;
+            }
+            return true;
+        }
+        if (value instanceof Double && type == double.class) {
+            setDouble(target, (Double) value);
+            return true;
+        }
+        if (value instanceof Float && type == float.class) {
+            setFloat(target, (Float) value);
+            return true;
+        }
+        if (value instanceof Boolean && type == boolean.class) {
+            setBoolean(target, (Boolean) value);
+            return true;
+        }
+        if (value instanceof Character && type == char.class) {
+            setChar(target, (Character) value);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 设置字段值，基本类型字段会拆箱后走对应的基本类型setter
+     * @param target 实例
+     * @param value 已转换为字段类型的值
+     */
+    void set(Object target, Object value) {
+        if (!type.isPrimitive()) {
+            setObject(target, value);
+        } else if (type == int.class) {
+            setInt(target, (Integer) value);
+        } else if (type == long.class) {
+            setLong(target, (Long) value);
+        } else if (type == boolean.class) {
+            setBoolean(target, (Boolean) value);
+        } else if (type == double.class) {
+            setDouble(target, (Double) value);
+        } else if (type == float.class) {
+            setFloat(target, (Float) value);
+        } else if (type == short.class) {
+            setShort(target, (Short) value);
+        } else if (type == byte.class) {
+            setByte(target, (Byte) value);
+        } else {
+            setChar(target, (Character) value);
+        }
+    }
+
+    private static boolean hasClass(String name) {
+        try {
+            Class.forName(name);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+
+    /**
+     * 基于MethodHandle的访问器，setter按字段的真实类型适配，调用时使用invokeExact
+     */
+    private static final class HandleAccessor extends MiaoFieldAccessor {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private HandleAccessor(Field field) throws IllegalAccessException {
+            super(field);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            this.getter = lookup.unreflectGetter(field)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            this.setter = lookup.unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, type.isPrimitive() ? type : Object.class));
+        }
+
+        @Override
+        Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setInt(Object target, int value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setLong(Object target, long value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setDouble(Object target, double value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setFloat(Object target, float value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setShort(Object target, short value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setByte(Object target, byte value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setChar(Object target, char value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setBoolean(Object target, boolean value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setObject(Object target, Object value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    /**
+     * 基于反射的访问器（Java 8）
+     */
+    private static final class ReflectAccessor extends MiaoFieldAccessor {
+        private ReflectAccessor(Field field) {
+            super(field);
+        }
+
+        @Override
+        Object get(Object target) {
+            try {
+                return field.get(target);
+            } catch (IllegalAccessException e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setInt(Object target, int value) {
+            try {
+                field.setInt(target, value);
+            } catch (IllegalAccessException e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setLong(Object target, long value) {
+            try {
+                field.setLong(target, value);
+            } catch (IllegalAccessException e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setDouble(Object target, double value) {
+            try {
+                field.setDouble(target, value);
+            } catch (IllegalAccessException e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setFloat(Object target, float value) {
+            try {
+                field.setFloat(target, value);
+            } catch (IllegalAccessException e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setShort(Object target, short value) {
+            try {
+                field.setShort(target, value);
+            } catch (IllegalAccessException e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setByte(Object target, byte value) {
+            try {
+                field.setByte(target, value);
+            } catch (IllegalAccessException e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setChar(Object target, char value) {
+            try {
+                field.setChar(target, value);
+            } catch (IllegalAccessException e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setBoolean(Object target, boolean value) {
+            try {
+                field.setBoolean(target, value);
+            } catch (IllegalAccessException e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setObject(Object target, Object value) {
+            try {
+                field.set(target, value);
+            } catch (IllegalAccessException e) {
+                throw rethrow(e);
+            }
+        }
+    }
+}
@@ -2,24 +2,142 @@ package com.tcddm.miaoconfig;
 
 import com.tcddm.miaoconfig.egg.MiaoLogger;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
 
 public class MiaoGlobalConfig {
-    private final MiaoConfigFileManager.MiaoConfigFile miaoConfigFile;
+    private final String configName;
+    private volatile MiaoConfigFileManager.MiaoConfigFile miaoConfigFile;
     private final MiaoLogger logger = MiaoLogger.getLogger(MiaoGlobalConfig.class);
     private final Map<String,Object> dynamicConfig=new ConcurrentHashMap<>();
+    //转换后的值缓存：目标类型 -> 路径 -> 缓存值
+    private final Map<Class<?>, Map<String, CachedValue>> valueCache = new ConcurrentHashMap<>();
+    //通过xxxKey创建的句柄，配置变化时统一刷新（弱引用，不再使用的句柄会被回收）
+    private final CopyOnWriteArrayList<WeakReference<Key>> keys = new CopyOnWriteArrayList<>();
 
     public MiaoGlobalConfig(MiaoConfigFileManager.MiaoConfigFile miaoConfigFile) {
+        this(null, miaoConfigFile);
+    }
+
+    MiaoGlobalConfig(String configName, MiaoConfigFileManager.MiaoConfigFile miaoConfigFile) {
+        this.configName = configName;
         this.miaoConfigFile = miaoConfigFile;
+        miaoConfigFile.setGlobalConfig(this);
+    }
+
+    /**
+     * 获取配置名称
+     * @return 配置名称，直接通过构造器创建时为null
+     */
+    public String getConfigName() {
+        return configName;
     }
 
     public MiaoConfigFileManager.MiaoConfigFile getMiaoConfigFile() {
         return miaoConfigFile;
     }
 
+    //配置文件重载后替换为新的配置文件，并清空缓存
+    void setMiaoConfigFile(MiaoConfigFileManager.MiaoConfigFile miaoConfigFile) {
+        this.miaoConfigFile = miaoConfigFile;
+        miaoConfigFile.setGlobalConfig(this);
+        valueCache.clear();
+        refreshKeys();
+    }
+
+    //重新计算所有句柄的值，在配置文件被重载或修改后调用
+    void refreshKeys() {
+        boolean hasDead = false;
+        for (WeakReference<Key> ref : keys) {
+            Key key = ref.get();
+            if (key == null) {
+                hasDead = true;
+            } else {
+                key.refresh(this);
+            }
+        }
+        if (hasDead) {
+            keys.removeIf(ref -> ref.get() == null);
+        }
+    }
+
+    //先加入再刷新：两者之间发生的重载或修改也会刷新到此句柄
+    private <K extends Key> K register(K key) {
+        keys.add(new WeakReference<>(key));
+        key.refresh(this);
+        return key;
+    }
+
+    /**
+     * 获取任意类型配置的句柄，值在配置重载或修改时重新转换，get()只是一次volatile读取
+     * @param path 配置路径
+     * @param type 目标类型
+     * @param defaultValue 默认值
+     * @return 句柄
+     */
+    public <T> ConfigKey<T> key(String path, Class<T> type, T defaultValue) {
+        return register(new ConfigKey<>(configName, path, type, defaultValue));
+    }
+
+    /**
+     * 获取任意类型配置的句柄（默认值为null）
+     * @param path 配置路径
+     * @param type 目标类型
+     * @return 句柄
+     */
+    public <T> ConfigKey<T> key(String path, Class<T> type) {
+        return key(path, type, null);
+    }
+
+    /**
+     * 获取int类型配置的句柄，值在配置重载或修改时刷新，读取时没有查找、转换和装箱
+     * @param path 配置路径
+     * @param defaultValue 默认值
+     * @return 句柄
+     */
+    public IntKey intKey(String path, int defaultValue) {
+        return register(new IntKey(path, defaultValue));
+    }
+
+    /**
+     * 获取long类型配置的句柄
+     * @param path 配置路径
+     * @param defaultValue 默认值
+     * @return 句柄
+     */
+    public LongKey longKey(String path, long defaultValue) {
+        return register(new LongKey(path, defaultValue));
+    }
+
+    /**
+     * 获取double类型配置的句柄
+     * @param path 配置路径
+     * @param defaultValue 默认值
+     * @return 句柄
+     */
+    public DoubleKey doubleKey(String path, double defaultValue) {
+        return register(new DoubleKey(path, defaultValue));
+    }
+
+    /**
+     * 获取boolean类型配置的句柄
+     * @param path 配置路径
+     * @param defaultValue 默认值
+     * @return 句柄
+     */
+    public BooleanKey booleanKey(String path, boolean defaultValue) {
+        return register(new BooleanKey(path, defaultValue));
+    }
+
     /**
      * 根据路径获取配置值，并转换为目标类型
      * @param path 配置路径（如 "db.port"）
@@ -27,14 +145,30 @@ public class MiaoGlobalConfig {
      * @param targetType 目标类型
      * @return 转换后的配置值或默认值
      */
+    @SuppressWarnings("unchecked")
     public <T> T get(String path, T defaultValue, Class<T> targetType) {
-        Object temp = PathUtils.getValue(miaoConfigFile.getConfig(), path);
+        MiaoConfigFileManager.MiaoConfigFile file = miaoConfigFile;
+        //同一个配置文件且未被修改过时直接使用缓存
+        Map<String, CachedValue> cache = valueCache.computeIfAbsent(targetType, k -> new ConcurrentHashMap<>());
+        CachedValue cached = path == null ? null : cache.get(path);
+        if (cached != null && cached.isValid(file)) {
+            return (T) cached.value;
+        }
+        int version = file.getVersion();
+        Object temp = file.getValue(path);
         if (temp == null) {
             return defaultValue;
         }
         try {
             Object converted = TypeConverter.convertValue(temp, targetType, true);
-            return targetType.cast(converted);
+            //基本类型使用包装类转换
+            Class<?> wrapperType = TypeConverter.getWrapperType(targetType);
+            T result = (T) (wrapperType != null ? wrapperType : targetType).cast(converted);
+            //容器和数组每次都返回新的副本，调用方可以随意修改，不放入缓存共享
+            if (!isMutableContainer(result)) {
+                cache.put(path, new CachedValue(file, version, result));
+            }
+            return result;
         } catch (Exception e) {
             logger.warn("配置路径[{}]类型转换失败，使用默认值", path, e);
             return defaultValue;
@@ -197,4 +331,177 @@ public class MiaoGlobalConfig {
     public Map<String, Object> getDynamicConfig() {
         return dynamicConfig;
     }
+
+    /**
+     * 转换后的值，记录来源的配置文件和版本
+     */
+    private static boolean isMutableContainer(Object value) {
+        return value instanceof Collection || value instanceof Map || value.getClass().isArray();
+    }
+
+    private static final class CachedValue {
+        private final MiaoConfigFileManager.MiaoConfigFile file;
+        private final int version;
+        private final Object value;
+
+        private CachedValue(MiaoConfigFileManager.MiaoConfigFile file, int version, Object value) {
+            this.file = file;
+            this.version = version;
+            this.value = value;
+        }
+
+        private boolean isValid(MiaoConfigFileManager.MiaoConfigFile current) {
+            return file == current && version == current.getVersion();
+        }
+    }
+
+    /**
+     * 配置句柄，创建时绑定路径，值由所属的全局配置在配置变化时刷新
+     */
+    public abstract static class Key {
+        private static final MiaoLogger logger = MiaoLogger.getLogger(Key.class);
+        protected final ConfigPath path;
+
+        protected Key(String path) {
+            this.path = ConfigPath.of(path);
+        }
+
+        public String getPath() {
+            return path.getPath();
+        }
+
+        //在锁内读取全局配置当前的配置文件和快照，后执行的刷新一定读到更新的配置，并发或乱序的刷新不会让值回退
+        final synchronized void refresh(MiaoGlobalConfig owner) {
+            refresh(owner.miaoConfigFile);
+        }
+
+        //从配置文件中重新读取并转换
+        abstract void refresh(MiaoConfigFileManager.MiaoConfigFile file);
+
+        //读取并转换，值不存在或转换失败时返回null
+        protected Object read(MiaoConfigFileManager.MiaoConfigFile file, Class<?> targetType) {
+            Object temp = file.getValue(path);
+            if (temp == null) {
+                return null;
+            }
+            try {
+                return TypeConverter.convertValue(temp, targetType, true);
+            } catch (Exception e) {
+                logger.warn("配置路径[{}]类型转换失败，使用默认值", path, e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * int类型配置句柄
+     */
+    public static final class IntKey extends Key implements IntSupplier {
+        private final int defaultValue;
+        private volatile int value;
+
+        private IntKey(String path, int defaultValue) {
+            super(path);
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        void refresh(MiaoConfigFileManager.MiaoConfigFile file) {
+            Object temp = read(file, int.class);
+            value = temp == null ? defaultValue : (Integer) temp;
+        }
+
+        public int get() {
+            return value;
+        }
+
+        @Override
+        public int getAsInt() {
+            return value;
+        }
+    }
+
+    /**
+     * long类型配置句柄
+     */
+    public static final class LongKey extends Key implements LongSupplier {
+        private final long defaultValue;
+        private volatile long value;
+
+        private LongKey(String path, long defaultValue) {
+            super(path);
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        void refresh(MiaoConfigFileManager.MiaoConfigFile file) {
+            Object temp = read(file, long.class);
+            value = temp == null ? defaultValue : (Long) temp;
+        }
+
+        public long get() {
+            return value;
+        }
+
+        @Override
+        public long getAsLong() {
+            return value;
+        }
+    }
+
+    /**
+     * double类型配置句柄
+     */
+    public static final class DoubleKey extends Key implements DoubleSupplier {
+        private final double defaultValue;
+        private volatile double value;
+
+        private DoubleKey(String path, double defaultValue) {
+            super(path);
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        void refresh(MiaoConfigFileManager.MiaoConfigFile file) {
+            Object temp = read(file, double.class);
+            value = temp == null ? defaultValue : (Double) temp;
+        }
+
+        public double get() {
+            return value;
+        }
+
+        @Override
+        public double getAsDouble() {
+            return value;
+        }
+    }
+
+    /**
+     * boolean类型配置句柄
+     */
+    public static final class BooleanKey extends Key implements BooleanSupplier {
+        private final boolean defaultValue;
+        private volatile boolean value;
+
+        private BooleanKey(String path, boolean defaultValue) {
+            super(path);
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        void refresh(MiaoConfigFileManager.MiaoConfigFile file) {
+            Object temp = read(file, boolean.class);
+            value = temp == null ? defaultValue : (Boolean) temp;
+        }
+
+        public boolean get() {
+            return value;
+        }
+
+        @Override
+        public boolean getAsBoolean() {
+            return value;
+        }
+    }
 }
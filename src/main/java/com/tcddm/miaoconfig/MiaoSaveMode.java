@@ -0,0 +1,22 @@
+package com.tcddm.miaoconfig;
+
+/**
+ * 配置文件的写入方式
+ * 通过 {@link MiaoConfigFileManager#setSaveMode(String, MiaoSaveMode)} 为单个配置设置
+ */
+public enum MiaoSaveMode {
+    /**
+     * 直接覆盖写入原文件，写入过程中读取可能看到不完整的内容
+     * 整个文件先序列化到内存再写入（序列化失败时原文件不变），大文件会占用等量的内存
+     */
+    DIRECT,
+    /**
+     * 先写入同目录的临时文件，再原子重命名覆盖原文件，读取方只会看到完整的旧文件或新文件
+     * 序列化时直接流式写入临时文件，不在内存中缓存整个文件
+     */
+    ATOMIC,
+    /**
+     * 与ATOMIC相同，重命名前后额外将文件和目录刷到磁盘，断电后也不会丢失或损坏
+     */
+    ATOMIC_FSYNC
+}
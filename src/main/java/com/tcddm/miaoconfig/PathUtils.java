@@ -1,11 +1,25 @@
 package com.tcddm.miaoconfig;
 
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 public class PathUtils {
-    private static final String PATH_SEPARATOR = "\\.";
+    //freeze生成的只读容器的类型
+    private static final Set<Class<?>> FROZEN_TYPES = new HashSet<>(Arrays.asList(
+            Collections.unmodifiableMap(new LinkedHashMap<>()).getClass(),
+            Collections.unmodifiableList(new ArrayList<>()).getClass(),
+            Collections.unmodifiableSet(new LinkedHashSet<>()).getClass()));
 
     /**
      * 从嵌套Map中根据路径获取值
@@ -18,7 +32,20 @@ public class PathUtils {
             return null;
         }
 
-        String[] keys = path.split(PATH_SEPARATOR);
+        return getValue(map, ConfigPath.of(path));
+    }
+
+    /**
+     * 从嵌套Map中根据编译后的路径获取值
+     * @param map 嵌套配置Map
+     * @param path 编译后的路径
+     * @return 对应路径的值，不存在则返回null
+     */
+    public static Object getValue(Map<String, Object> map, ConfigPath path) {
+        if (map == null || path == null) {
+            return null;
+        }
+        String[] keys = path.keys();
         Map<String, Object> current = map;
 
         for (int i = 0; i < keys.length; i++) {
@@ -52,7 +79,22 @@ public class PathUtils {
             return false;
         }
 
-        String[] keys = path.split(PATH_SEPARATOR);
+        return setValue(map, ConfigPath.of(path), value);
+    }
+
+    /**
+     * 向嵌套Map中根据编译后的路径设置值
+     * @param map 嵌套配置Map
+     * @param path 编译后的路径
+     * @param value 要设置的值
+     * @return 是否发生了修改
+     */
+    public static boolean setValue(Map<String, Object> map, ConfigPath path, Object value) {
+        if (map == null || path == null) {
+            return false;
+        }
+
+        String[] keys = path.keys();
         Map<String, Object> current = map;
 
         for (int i = 0; i < keys.length; i++) {
@@ -115,6 +157,128 @@ public class PathUtils {
         }
         return false;
     }
+    /**
+     * 将嵌套Map展开为 完整路径 -> 值 的扁平索引（中间节点的Map也会被收录）
+     * 键中含有"."的节点无法通过路径访问，不会被收录；null值不收录
+     * @param map 嵌套配置Map
+     * @param prefix 路径前缀，根节点传null
+     * @param index 写入的索引
+     */
+    public static void flatten(Map<?, ?> map, String prefix, Map<String, Object> index) {
+        if (map == null) {
+            return;
+        }
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!(entry.getKey() instanceof String)) {
+                continue;
+            }
+            String key = (String) entry.getKey();
+            Object value = entry.getValue();
+            if (value == null || key.indexOf('.') >= 0) {
+                continue;
+            }
+            String fullPath = prefix == null ? key : prefix + "." + key;
+            index.put(fullPath, value);
+            if (value instanceof Map<?, ?>) {
+                flatten((Map<?, ?>) value, fullPath, index);
+            }
+        }
+    }
+    /**
+     * 逐层复制为只读容器：Map、List、Set复制后包装为只读，数组复制一份（数组本身无法只读），其余值原样返回
+     * 用于发布配置快照，复制后调用方再修改原来的容器也不会影响快照
+     * @param value 值
+     * @return 只读的副本
+     */
+    static Object freeze(Object value) {
+        if (value instanceof Map<?, ?>) {
+            return freezeMap((Map<?, ?>) value);
+        }
+        if (value instanceof Set<?>) {
+            Set<Object> copy = new LinkedHashSet<>();
+            for (Object element : (Set<?>) value) {
+                copy.add(freeze(element));
+            }
+            return Collections.unmodifiableSet(copy);
+        }
+        if (value instanceof Collection<?>) {
+            List<Object> copy = new ArrayList<>(((Collection<?>) value).size());
+            for (Object element : (Collection<?>) value) {
+                copy.add(freeze(element));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        if (value instanceof Object[]) {
+            Object[] copy = ((Object[]) value).clone();
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = freeze(copy[i]);
+            }
+            return copy;
+        }
+        if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return copy;
+        }
+        return value;
+    }
+
+    /**
+     * 逐层复制Map为只读容器，键为null的节点无法通过路径访问，不会被复制
+     * @param map 嵌套配置Map，为null时返回空Map
+     * @return 只读的副本
+     */
+    static Map<String, Object> freezeMap(Map<?, ?> map) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        if (map != null) {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (entry.getKey() != null) {
+                    copy.put(entry.getKey().toString(), freeze(entry.getValue()));
+                }
+            }
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * 是否为freeze生成的只读容器类型
+     * @param type 类型
+     * @return 是否只读
+     */
+    static boolean isFrozen(Class<?> type) {
+        return FROZEN_TYPES.contains(type);
+    }
+
+    /**
+     * 逐层复制为可修改的容器（freeze的逆操作），数组和其余值原样返回
+     * @param value 值
+     * @return 可修改的副本
+     */
+    static Object thaw(Object value) {
+        if (value instanceof Map<?, ?>) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(String.valueOf(entry.getKey()), thaw(entry.getValue()));
+            }
+            return copy;
+        }
+        if (value instanceof Set<?>) {
+            Set<Object> copy = new LinkedHashSet<>();
+            for (Object element : (Set<?>) value) {
+                copy.add(thaw(element));
+            }
+            return copy;
+        }
+        if (value instanceof Collection<?>) {
+            List<Object> copy = new ArrayList<>(((Collection<?>) value).size());
+            for (Object element : (Collection<?>) value) {
+                copy.add(thaw(element));
+            }
+            return copy;
+        }
+        return value;
+    }
     private static boolean compareNumbers(Number a, Number b) {
         if (a instanceof Double && b instanceof Float) {
             return a.doubleValue() == b.doubleValue();
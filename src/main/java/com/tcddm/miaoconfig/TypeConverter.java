@@ -1,12 +1,15 @@
 package com.tcddm.miaoconfig;
 
+import com.tcddm.miaoconfig.converter.MiaoConverter;
 import com.tcddm.miaoconfig.egg.MiaoLogger;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 /**
@@ -18,71 +21,182 @@ import java.util.stream.Collectors;
  数组类型：支持从List、字符串、其他数组转换为指定类型数组
  日期时间类型（LocalDate、LocalDateTime）：支持标准格式字符串转换
  Optional类型：自动包装转换结果为Optional对象
+ 自定义类型：通过registerConverter/overrideConverter或ServiceLoader注册MiaoConverter
  目前该类还不够完善，可能有意想不到的问题（特别是null的处理），实在是没办法了，祈求不要出问题qwq
  **/
 public class TypeConverter {
     private static final MiaoLogger logger = MiaoLogger.getLogger(TypeConverter.class);
 
-    //使用ConcurrentHashMap提高线程安全性
-    private static final Map<Class<?>, Function<ConvertContext, Object>> CONVERTERS = new HashMap<>();
+    //转换器注册表，写时复制：注册时复制一份新的注册表再整体替换，读取无需加锁
+    private static volatile Registry registry;
+    private static final Object REGISTRY_LOCK = new Object();
+    //内置的转换器表，用于判断某个类型的转换器是否被自定义转换器覆盖
+    private static final Map<Class<?>, Converter> BUILTIN;
+    //类型已匹配时直接返回
+    private static final Converter IDENTITY = (value, throwOnFailure) -> value;
+
+    //转换函数
+    @FunctionalInterface
+    private interface Converter {
+        Object convert(Object value, boolean throwOnFailure);
+    }
 
-    //转换上下文，携带必要的转换信息
-    private static class ConvertContext {
-        final Object value;
-        final boolean throwOnFailure;
+    //不可变的转换器表，以及基于这张表解析出的转换函数缓存（目标类型 -> 值的类型 -> 转换函数）
+    //缓存通过ClassValue挂在目标类型上，不会阻止插件或热部署环境中的类加载器被卸载
+    private static final class Registry {
+        final Map<Class<?>, Converter> converters;
+        final ClassValue<Map<Class<?>, Converter>> resolved = new ClassValue<Map<Class<?>, Converter>>() {
+            @Override
+            protected Map<Class<?>, Converter> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
 
-        ConvertContext(Object value, boolean throwOnFailure) {
-            this.value = value;
-            this.throwOnFailure = throwOnFailure;
+        Registry(Map<Class<?>, Converter> converters) {
+            this.converters = converters;
         }
     }
 
     static {
+        Map<Class<?>, Converter> converters = new HashMap<>();
         //字符串转换
-        CONVERTERS.put(String.class, ctx -> ctx.value != null ? ctx.value.toString() : null);
+        converters.put(String.class, (value, throwOnFailure) -> value != null ? value.toString() : null);
 
         //整数类型转换
-        CONVERTERS.put(int.class, ctx -> parseNumber(ctx, Integer::parseInt, 0));
-        CONVERTERS.put(Integer.class, ctx -> parseNumber(ctx, Integer::parseInt, null));
+        converters.put(int.class, (value, throwOnFailure) -> parseNumber(value, throwOnFailure, Integer::parseInt, 0));
+        converters.put(Integer.class, (value, throwOnFailure) -> parseNumber(value, throwOnFailure, Integer::parseInt, null));
 
         //布尔类型转换
-        CONVERTERS.put(boolean.class, ctx -> parseBoolean(ctx, false));
-        CONVERTERS.put(Boolean.class, ctx -> parseBoolean(ctx, null));
+        converters.put(boolean.class, (value, throwOnFailure) -> parseBoolean(value, throwOnFailure, false));
+        converters.put(Boolean.class, (value, throwOnFailure) -> parseBoolean(value, throwOnFailure, null));
 
         //长整数类型转换
-        CONVERTERS.put(long.class, ctx -> parseNumber(ctx, Long::parseLong, 0L));
-        CONVERTERS.put(Long.class, ctx -> parseNumber(ctx, Long::parseLong, null));
+        converters.put(long.class, (value, throwOnFailure) -> parseNumber(value, throwOnFailure, Long::parseLong, 0L));
+        converters.put(Long.class, (value, throwOnFailure) -> parseNumber(value, throwOnFailure, Long::parseLong, null));
 
         //双精度类型转换
-        CONVERTERS.put(double.class, ctx -> parseNumber(ctx, Double::parseDouble, 0.0));
-        CONVERTERS.put(Double.class, ctx -> parseNumber(ctx, Double::parseDouble, null));
+        converters.put(double.class, (value, throwOnFailure) -> parseNumber(value, throwOnFailure, Double::parseDouble, 0.0));
+        converters.put(Double.class, (value, throwOnFailure) -> parseNumber(value, throwOnFailure, Double::parseDouble, null));
 
         //单精度类型转换
-        CONVERTERS.put(float.class, ctx -> parseNumber(ctx, Float::parseFloat, 0.0f));
-        CONVERTERS.put(Float.class, ctx -> parseNumber(ctx, Float::parseFloat, null));
+        converters.put(float.class, (value, throwOnFailure) -> parseNumber(value, throwOnFailure, Float::parseFloat, 0.0f));
+        converters.put(Float.class, (value, throwOnFailure) -> parseNumber(value, throwOnFailure, Float::parseFloat, null));
 
         //短整数类型转换
-        CONVERTERS.put(short.class, ctx -> parseNumber(ctx, Short::parseShort, (short) 0));
-        CONVERTERS.put(Short.class, ctx -> parseNumber(ctx, Short::parseShort, null));
+        converters.put(short.class, (value, throwOnFailure) -> parseNumber(value, throwOnFailure, Short::parseShort, (short) 0));
+        converters.put(Short.class, (value, throwOnFailure) -> parseNumber(value, throwOnFailure, Short::parseShort, null));
 
         //字节类型转换
-        CONVERTERS.put(byte.class, ctx -> parseNumber(ctx, Byte::parseByte, (byte) 0));
-        CONVERTERS.put(Byte.class, ctx -> parseNumber(ctx, Byte::parseByte, null));
+        converters.put(byte.class, (value, throwOnFailure) -> parseNumber(value, throwOnFailure, Byte::parseByte, (byte) 0));
+        converters.put(Byte.class, (value, throwOnFailure) -> parseNumber(value, throwOnFailure, Byte::parseByte, null));
 
         //字符类型转换
-        CONVERTERS.put(char.class, ctx -> parseChar(ctx, '\0'));
-        CONVERTERS.put(Character.class, ctx -> parseChar(ctx, null));
+        converters.put(char.class, (value, throwOnFailure) -> parseChar(value, throwOnFailure, '\0'));
+        converters.put(Character.class, (value, throwOnFailure) -> parseChar(value, throwOnFailure, null));
 
         //日期类型转换
-        CONVERTERS.put(LocalDate.class, ctx -> parseLocalDate(ctx, null));
-        CONVERTERS.put(LocalDateTime.class, ctx -> parseLocalDateTime(ctx, null));
+        converters.put(LocalDate.class, (value, throwOnFailure) -> parseLocalDate(value, throwOnFailure, null));
+        converters.put(LocalDateTime.class, (value, throwOnFailure) -> parseLocalDateTime(value, throwOnFailure, null));
 
         //Optional类型转换
-        CONVERTERS.put(Optional.class, ctx -> Optional.ofNullable(convertValue(ctx.value, Object.class, ctx.throwOnFailure)));
+        converters.put(Optional.class, (value, throwOnFailure) -> Optional.ofNullable(convertValue(value, Object.class, throwOnFailure)));
+
+        BUILTIN = Collections.unmodifiableMap(converters);
+        registry = new Registry(BUILTIN);
+
+        //通过ServiceLoader发现自定义转换器
+        try {
+            for (MiaoConverter<?> converter : ServiceLoader.load(MiaoConverter.class)) {
+                if (converter.targetType() == null) {
+                    logger.warn("转换器{}未实现targetType，已忽略", converter.getClass().getName());
+                    continue;
+                }
+                putConverter(converter.targetType(), converter, true);
+                logger.debug("已发现转换器: {} -> {}", converter.getClass().getName(), converter.targetType().getSimpleName());
+            }
+        } catch (ServiceConfigurationError e) {
+            logger.warn("加载自定义转换器失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 注册自定义类型转换器，目标类型已有转换器时不会覆盖
+     * @param targetType 目标类型
+     * @param converter 转换器
+     * @return 是否注册成功
+     */
+    public static <T> boolean registerConverter(Class<T> targetType, MiaoConverter<? extends T> converter) {
+        return putConverter(targetType, converter, false);
+    }
+
+    /**
+     * 注册自定义类型转换器，使用转换器自身的targetType
+     * @param converter 转换器
+     * @return 是否注册成功
+     */
+    public static boolean registerConverter(MiaoConverter<?> converter) {
+        return putConverter(converter.targetType(), converter, false);
+    }
+
+    /**
+     * 注册或覆盖类型转换器（包括内置的转换器）
+     * @param targetType 目标类型
+     * @param converter 转换器
+     */
+    public static <T> void overrideConverter(Class<T> targetType, MiaoConverter<? extends T> converter) {
+        putConverter(targetType, converter, true);
+    }
+
+    /**
+     * 判断目标类型是否有预定义或自定义的转换器
+     * @param targetType 目标类型
+     * @return 是否存在
+     */
+    public static boolean hasConverter(Class<?> targetType) {
+        return registry.converters.containsKey(targetType);
+    }
+
+    /**
+     * 判断目标类型当前使用的是否为内置的转换器（没有被自定义转换器覆盖）
+     * @param targetType 目标类型
+     * @return 是否为内置转换器
+     */
+    static boolean isBuiltin(Class<?> targetType) {
+        Converter converter = registry.converters.get(targetType);
+        return converter != null && converter == BUILTIN.get(targetType);
+    }
+
+    private static boolean putConverter(Class<?> targetType, MiaoConverter<?> converter, boolean override) {
+        if (targetType == null || converter == null) {
+            throw new IllegalArgumentException("目标类型和转换器不能为空");
+        }
+        synchronized (REGISTRY_LOCK) {
+            Registry current = registry;
+            if (!override && current.converters.containsKey(targetType)) {
+                return false;
+            }
+            Map<Class<?>, Converter> converters = new HashMap<>(current.converters);
+            converters.put(targetType, (value, throwOnFailure) -> {
+                try {
+                    return converter.convert(value);
+                } catch (Exception e) {
+                    String errorMsg = buildErrorMessage(value, targetType, "自定义转换失败");
+                    if (throwOnFailure) {
+                        throw new IllegalArgumentException(errorMsg, e);
+                    }
+                    logger.warn(errorMsg, e);
+                    return null;
+                }
+            });
+            //整体替换，之前解析的转换函数一并作废
+            registry = new Registry(Collections.unmodifiableMap(converters));
+            return true;
+        }
     }
 
     /**
      * 类型转换方法，通过参数控制转换失败时的行为
+     * 按 (值的类型, 目标类型) 缓存解析出的转换函数，重复的转换只需一次查找和一次调用
      * @param value 要转换的值
      * @param targetType 目标类型
      * @param throwOnFailure 转换失败时是否抛出异常
@@ -90,67 +204,150 @@ public class TypeConverter {
      * @throws IllegalArgumentException 当转换失败且throwOnFailure为true时抛出
      */
     public static Object convertValue(Object value, Class<?> targetType, boolean throwOnFailure) {
+        Registry current = registry;
+        if (value == null) {
+            return resolve(current, null, targetType).convert(null, throwOnFailure);
+        }
+        Map<Class<?>, Converter> resolved = current.resolved.get(targetType);
+        Class<?> valueType = value.getClass();
+        Converter converter = resolved.get(valueType);
+        if (converter == null) {
+            converter = resolve(current, valueType, targetType);
+            if (isCacheable(valueType, targetType)) {
+                resolved.put(valueType, converter);
+            }
+        }
+        return converter.convert(value, throwOnFailure);
+    }
+
+    //值的类型由启动类加载器或与目标类型相同的类加载器加载时才缓存，避免目标类型的缓存引用其他类加载器的类
+    private static boolean isCacheable(Class<?> valueType, Class<?> targetType) {
+        ClassLoader loader = valueType.getClassLoader();
+        return loader == null || loader == targetType.getClassLoader();
+    }
 
+    /**
+     * 解析转换函数，判断顺序：类型匹配 -> 包装类型匹配 -> 预定义的转换策略 -> 枚举 -> 列表 -> 数组 -> 不支持
+     * @param current 转换器注册表
+     * @param valueType 值的类型，值为null时传null
+     * @param targetType 目标类型
+     * @return 转换函数
+     */
+    private static Converter resolve(Registry current, Class<?> valueType, Class<?> targetType) {
+        //配置快照中的只读容器，先复制为可修改的容器（LinkedHashMap、ArrayList、LinkedHashSet），注入的字段被修改时不会影响已发布的快照
+        //副本符合目标类型（如Map、HashMap、List、ArrayList）时直接使用，目标是其他可实例化的容器（如HashSet、TreeMap）时复制到该类型，
+        //否则按普通的值继续转换
+        if (valueType != null && PathUtils.isFrozen(valueType)) {
+            return (value, throwOnFailure) -> {
+                Object thawed = PathUtils.thaw(value);
+                if (targetType.isInstance(thawed)) {
+                    return thawed;
+                }
+                Object container = copyToContainer(thawed, targetType);
+                return container != null ? container : convertValue(thawed, targetType, throwOnFailure);
+            };
+        }
         //如果类型已匹配，直接返回
-        if (targetType.isInstance(value)) {
-            return value;
+        if (valueType != null && targetType.isAssignableFrom(valueType)) {
+            return IDENTITY;
         }
 
         //处理基本类型的包装类转换
         Class<?> wrapperType = getWrapperType(targetType);
-        if (wrapperType != null && wrapperType.isInstance(value)) {
-            return value;
+        if (valueType != null && wrapperType != null && wrapperType.isAssignableFrom(valueType)) {
+            return IDENTITY;
         }
 
+        Converter fallback = resolveFallback(targetType);
         //尝试使用预定义的转换策略
-        Function<ConvertContext, Object> converter = CONVERTERS.get(targetType);
-        if (converter != null) {
+        Converter converter = current.converters.get(targetType);
+        if (converter == null) {
+            return fallback;
+        }
+        boolean primitive = targetType.isPrimitive();
+        return (value, throwOnFailure) -> {
             try {
-                Object result = converter.apply(new ConvertContext(value, throwOnFailure));
+                Object result = converter.convert(value, throwOnFailure);
                 //检查转换结果是否有效
-                if (result != null || !targetType.isPrimitive()) {
+                if (result != null || !primitive) {
                     return result;
                 }
             } catch (IllegalArgumentException e) {
                 return handleConversionError(value, targetType, throwOnFailure, e);
             }
-        }
+            return fallback.convert(value, throwOnFailure);
+        };
+    }
 
+    //预定义策略之外的转换：枚举、列表、数组，都不匹配时按不支持处理
+    private static Converter resolveFallback(Class<?> targetType) {
         //处理枚举类型
         if (targetType.isEnum()) {
-            Object enumResult = convertToEnum(value, targetType, throwOnFailure);
-            if (enumResult != null) {
-                return enumResult;
-            } else if (throwOnFailure) {
-                throw new IllegalArgumentException(
-                        buildErrorMessage(value, targetType, "枚举转换失败")
-                );
-            }
+            return (value, throwOnFailure) -> {
+                Object enumResult = convertToEnum(value, targetType, throwOnFailure);
+                if (enumResult != null) {
+                    return enumResult;
+                } else if (throwOnFailure) {
+                    throw new IllegalArgumentException(
+                            buildErrorMessage(value, targetType, "枚举转换失败")
+                    );
+                }
+                return handleUnsupportedConversion(value, targetType, false);
+            };
         }
 
         //处理列表类型
         if (List.class.isAssignableFrom(targetType)) {
-            try {
-                return convertToList(value, throwOnFailure);
-            } catch (Exception e) {
-                return handleConversionError(value, targetType, throwOnFailure, e);
-            }
+            return (value, throwOnFailure) -> {
+                try {
+                    return convertToList(value, throwOnFailure);
+                } catch (Exception e) {
+                    return handleConversionError(value, targetType, throwOnFailure, e);
+                }
+            };
         }
 
         //处理数组类型
         if (targetType.isArray()) {
-            Object arrayResult = convertToArray(value, targetType, throwOnFailure);
-            if (arrayResult != null) {
-                return arrayResult;
-            } else if (throwOnFailure) {
-                throw new IllegalArgumentException(
-                        buildErrorMessage(value, targetType, "数组转换失败")
-                );
-            }
+            return (value, throwOnFailure) -> {
+                Object arrayResult = convertToArray(value, targetType, throwOnFailure);
+                if (arrayResult != null) {
+                    return arrayResult;
+                } else if (throwOnFailure) {
+                    throw new IllegalArgumentException(
+                            buildErrorMessage(value, targetType, "数组转换失败")
+                    );
+                }
+                return handleUnsupportedConversion(value, targetType, false);
+            };
         }
 
         //无法转换时根据参数决定行为
-        return handleUnsupportedConversion(value, targetType, throwOnFailure);
+        return (value, throwOnFailure) -> handleUnsupportedConversion(value, targetType, throwOnFailure);
+    }
+
+    //复制到目标类型的新容器，目标不是可通过无参构造器实例化的Collection或Map实现类时返回null
+    @SuppressWarnings("unchecked")
+    private static Object copyToContainer(Object value, Class<?> targetType) {
+        if (targetType.isInterface() || Modifier.isAbstract(targetType.getModifiers())) {
+            return null;
+        }
+        boolean collection = value instanceof Collection && Collection.class.isAssignableFrom(targetType);
+        boolean map = value instanceof Map && Map.class.isAssignableFrom(targetType);
+        if (!collection && !map) {
+            return null;
+        }
+        try {
+            Object container = targetType.getDeclaredConstructor().newInstance();
+            if (collection) {
+                ((Collection<Object>) container).addAll((Collection<?>) value);
+            } else {
+                ((Map<Object, Object>) container).putAll((Map<?, ?>) value);
+            }
+            return container;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
     }
 
     /**
@@ -252,13 +449,13 @@ public class TypeConverter {
     /**
      * 解析数字
      */
-    private static <T> T parseNumber(ConvertContext ctx, Function<String, T> parser, T defaultValue) {
+    private static <T> T parseNumber(Object value, boolean throwOnFailure, Function<String, T> parser, T defaultValue) {
         try {
-            String strValue = ctx.value.toString().trim();
+            String strValue = value.toString().trim();
             return parser.apply(strValue);
         } catch (NumberFormatException e) {
-            String errorMsg = buildErrorMessage(ctx.value, parser.getClass(), "数字转换失败");
-            if (ctx.throwOnFailure) {
+            String errorMsg = buildErrorMessage(value, parser.getClass(), "数字转换失败");
+            if (throwOnFailure) {
                 throw new IllegalArgumentException(errorMsg, e);
             }
             logger.warn("{}，使用默认值 {}", errorMsg, defaultValue, e);
@@ -269,13 +466,13 @@ public class TypeConverter {
     /**
      * 解析布尔值
      */
-    private static Boolean parseBoolean(ConvertContext ctx, Boolean defaultValue) {
-        if (ctx.value instanceof Number) {
+    private static Boolean parseBoolean(Object value, boolean throwOnFailure, Boolean defaultValue) {
+        if (value instanceof Number) {
             //数字0为false，其他为true
-            return ((Number) ctx.value).doubleValue() != 0;
+            return ((Number) value).doubleValue() != 0;
         }
 
-        String strValue = ctx.value.toString().trim().toLowerCase();
+        String strValue = value.toString().trim().toLowerCase();
         if ("true".equals(strValue) || "1".equals(strValue) || "yes".equals(strValue) || "y".equals(strValue)) {
             return true;
         }
@@ -283,8 +480,8 @@ public class TypeConverter {
             return false;
         }
 
-        String errorMsg = buildErrorMessage(ctx.value, Boolean.class, "布尔值转换失败");
-        if (ctx.throwOnFailure) {
+        String errorMsg = buildErrorMessage(value, Boolean.class, "布尔值转换失败");
+        if (throwOnFailure) {
             throw new IllegalArgumentException(errorMsg);
         }
 
@@ -295,9 +492,9 @@ public class TypeConverter {
     /**
      * 解析字符
      */
-    private static Character parseChar(ConvertContext ctx, Character defaultValue) {
+    private static Character parseChar(Object value, boolean throwOnFailure, Character defaultValue) {
         try {
-            String strValue = ctx.value.toString().trim();
+            String strValue = value.toString().trim();
             if (strValue.length() == 1) {
                 return strValue.charAt(0);
             }
@@ -309,8 +506,8 @@ public class TypeConverter {
             int code = Integer.parseInt(strValue);
             return (char) code;
         } catch (Exception e) {
-            String errorMsg = buildErrorMessage(ctx.value, Character.class, "字符转换失败");
-            if (ctx.throwOnFailure) {
+            String errorMsg = buildErrorMessage(value, Character.class, "字符转换失败");
+            if (throwOnFailure) {
                 throw new IllegalArgumentException(errorMsg, e);
             }
             logger.warn("{}，使用默认值 {}", errorMsg, defaultValue, e);
@@ -321,12 +518,12 @@ public class TypeConverter {
     /**
      * 解析LocalDate
      */
-    private static LocalDate parseLocalDate(ConvertContext ctx, LocalDate defaultValue) {
+    private static LocalDate parseLocalDate(Object value, boolean throwOnFailure, LocalDate defaultValue) {
         try {
-            return LocalDate.parse(ctx.value.toString().trim());
+            return LocalDate.parse(value.toString().trim());
         } catch (DateTimeParseException e) {
-            String errorMsg = buildErrorMessage(ctx.value, LocalDate.class, "日期转换失败");
-            if (ctx.throwOnFailure) {
+            String errorMsg = buildErrorMessage(value, LocalDate.class, "日期转换失败");
+            if (throwOnFailure) {
                 throw new IllegalArgumentException(errorMsg, e);
             }
             logger.warn("{}，使用默认值 {}", errorMsg, defaultValue, e);
@@ -337,12 +534,12 @@ public class TypeConverter {
     /**
      * 解析LocalDateTime
      */
-    private static LocalDateTime parseLocalDateTime(ConvertContext ctx, LocalDateTime defaultValue) {
+    private static LocalDateTime parseLocalDateTime(Object value, boolean throwOnFailure, LocalDateTime defaultValue) {
         try {
-            return LocalDateTime.parse(ctx.value.toString().trim());
+            return LocalDateTime.parse(value.toString().trim());
         } catch (DateTimeParseException e) {
-            String errorMsg = buildErrorMessage(ctx.value, LocalDateTime.class, "日期时间转换失败");
-            if (ctx.throwOnFailure) {
+            String errorMsg = buildErrorMessage(value, LocalDateTime.class, "日期时间转换失败");
+            if (throwOnFailure) {
                 throw new IllegalArgumentException(errorMsg, e);
             }
             logger.warn("{}，使用默认值 {}", errorMsg, defaultValue, e);
@@ -390,7 +587,7 @@ public class TypeConverter {
     /**
      * 获取基本类型对应的包装类型
      */
-    private static Class<?> getWrapperType(Class<?> type) {
+    static Class<?> getWrapperType(Class<?> type) {
         if (!type.isPrimitive()) {
             return null;
         }
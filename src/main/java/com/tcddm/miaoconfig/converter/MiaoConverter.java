@@ -0,0 +1,26 @@
+package com.tcddm.miaoconfig.converter;
+
+/**
+ * 自定义类型转换器
+ * 通过 {@link com.tcddm.miaoconfig.TypeConverter#registerConverter(Class, MiaoConverter)} 注册，
+ * 或在 META-INF/services/com.tcddm.miaoconfig.converter.MiaoConverter 中声明由ServiceLoader自动发现（需实现targetType）
+ * @param <T> 目标类型
+ */
+@FunctionalInterface
+public interface MiaoConverter<T> {
+    /**
+     * 将配置中的值转换为目标类型
+     * @param value 配置中的值（不为null）
+     * @return 转换后的值
+     * @throws Exception 转换失败
+     */
+    T convert(Object value) throws Exception;
+
+    /**
+     * 目标类型，通过ServiceLoader发现时必须实现
+     * @return 目标类型
+     */
+    default Class<T> targetType() {
+        return null;
+    }
+}
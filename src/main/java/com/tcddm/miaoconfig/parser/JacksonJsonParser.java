@@ -1,11 +1,19 @@
 package com.tcddm.miaoconfig.parser;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 // =^^= Jackson JSON 解析器 =^^=
 public class JacksonJsonParser implements MiaoConfigParser {
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {};
     private final ObjectMapper mapper;
 
     public JacksonJsonParser() {
@@ -17,7 +25,28 @@ public class JacksonJsonParser implements MiaoConfigParser {
     @Override
     public Map<String, Object> parse(String content) throws Exception {
         // 使用 Jackson 将 JSON 字符串解析为 Map
-        return mapper.readValue(content, new com.fasterxml.jackson.core.type.TypeReference<Map<String, Object>>() {});
+        return mapper.readValue(content, MAP_TYPE);
+    }
+
+    @Override
+    public Map<String, Object> parse(byte[] content) throws Exception {
+        // 直接从字节解析，不需要先转换为字符串
+        return mapper.readValue(content, MAP_TYPE);
+    }
+
+    @Override
+    public Map<String, Object> parse(ByteBuffer content) throws Exception {
+        ByteBuffer buffer = content.duplicate();
+        if (buffer.hasArray()) {
+            return mapper.readValue(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), MAP_TYPE);
+        }
+        // 内存映射等直接缓冲区通过流读取，不复制整个文件
+        return mapper.readValue(new ByteBufferBackedInputStream(buffer), MAP_TYPE);
+    }
+
+    @Override
+    public Map<String, Object> parse(InputStream content) throws Exception {
+        return mapper.readValue(content, MAP_TYPE);
     }
 
     @Override
@@ -26,6 +55,15 @@ public class JacksonJsonParser implements MiaoConfigParser {
         return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(configData);
     }
 
+    @Override
+    public void serialize(Map<String, Object> configData, OutputStream out) throws Exception {
+        // 通过JsonGenerator直接写入输出流，不构建完整的字符串
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            mapper.writerWithDefaultPrettyPrinter().writeValue(generator, configData);
+        }
+    }
+
     @Override
     public String[] supportedExtensions() {
         return new String[]{".json"};
@@ -1,5 +1,10 @@
 package com.tcddm.miaoconfig.parser;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 /**
@@ -12,12 +17,59 @@ public interface MiaoConfigParser {
      */
     Map<String, Object> parse(String content) throws Exception;
 
+    /**
+     * 从UTF-8字节解析配置数据
+     * 默认先转换为字符串，解析器可以重写以直接读取字节
+     * @return 解析后的Map
+     */
+    default Map<String, Object> parse(byte[] content) throws Exception {
+        return parse(new String(content, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 从UTF-8字节缓冲区（可以是内存映射的文件）解析配置数据，不会修改缓冲区的position
+     * 默认复制为字节数组，解析器可以重写以直接读取缓冲区
+     * @return 解析后的Map
+     */
+    default Map<String, Object> parse(ByteBuffer content) throws Exception {
+        ByteBuffer buffer = content.duplicate();
+        if (buffer.hasArray()) {
+            return parse(new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), StandardCharsets.UTF_8));
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return parse(bytes);
+    }
+
+    /**
+     * 从UTF-8输入流解析配置数据，不会关闭输入流
+     * 默认读取全部内容后解析，解析器可以重写以流式读取
+     * @return 解析后的Map
+     */
+    default Map<String, Object> parse(InputStream content) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return parse(out.toByteArray());
+    }
+
     /**
      * 将配置数据序列化为字符串
      * @return 序列化后的字符串
      */
     String serialize(Map<String, Object> configData) throws Exception;
 
+    /**
+     * 将配置数据以UTF-8序列化写入输出流，不会关闭输出流
+     * 默认先序列化为字符串再写入，解析器可以重写以流式写入
+     */
+    default void serialize(Map<String, Object> configData, OutputStream out) throws Exception {
+        out.write(serialize(configData).getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * 支持的文件后缀
      * @return 支持的文件后缀
@@ -0,0 +1,303 @@
+package com.tcddm.miaoconfig.processor;
+
+import com.tcddm.miaoconfig.MiaoConfigBinder;
+import com.tcddm.miaoconfig.MiaoIsEnable;
+import com.tcddm.miaoconfig.annotation.MiaoConfig;
+import com.tcddm.miaoconfig.annotation.MiaoValue;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译期为@MiaoConfig类生成 {@link MiaoConfigBinder}
+ * 生成的绑定器按字段逐个直接读写，运行时不再需要反射
+ * 可选功能，需要手动启用（javac -processor 或 maven-compiler-plugin 的 annotationProcessors）
+ * private字段需要有对应的getter/setter，否则该类不生成绑定器，运行时继续使用反射
+ */
+@SupportedAnnotationTypes("com.tcddm.miaoconfig.annotation.MiaoConfig")
+public class MiaoBinderProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(MiaoConfig.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                continue;
+            }
+            TypeElement typeElement = (TypeElement) element;
+            try {
+                generate(typeElement);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "生成绑定器失败: " + e.getMessage(), typeElement);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement typeElement) throws IOException {
+        if (typeElement.getModifiers().contains(Modifier.PRIVATE)) {
+            note(typeElement, "私有类无法生成绑定器");
+            return;
+        }
+        String packageName = getPackage(typeElement).getQualifiedName().toString();
+        String mainPath = typeElement.getAnnotation(MiaoConfig.class).path();
+
+        //收集字段，顺序和覆盖规则与运行时的绑定计划一致
+        List<FieldModel> fields = new ArrayList<>();
+        for (VariableElement field : collectFields(typeElement).values()) {
+            FieldModel model = buildField(typeElement, field, packageName, mainPath);
+            if (model == null) {
+                return;
+            }
+            fields.add(model);
+        }
+
+        String binaryName = processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                .replace('$', '_') + MiaoConfigBinder.SUFFIX;
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        String configType = processingEnv.getTypeUtils().erasure(typeElement.asType()).toString();
+
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("import com.tcddm.miaoconfig.ConfigPath;\n")
+                .append("import com.tcddm.miaoconfig.MiaoConfigBinder;\n")
+                .append("import com.tcddm.miaoconfig.MiaoConfigClazzManager;\n")
+                .append("import com.tcddm.miaoconfig.PathUtils;\n")
+                .append("import com.tcddm.miaoconfig.TypeConverter;\n")
+                .append("import com.tcddm.miaoconfig.egg.MiaoLogger;\n")
+                .append("import com.tcddm.miaoconfig.exception.MiaoConfigSetException;\n\n")
+                .append("import java.util.HashMap;\n")
+                .append("import java.util.Map;\n\n")
+                .append("// =^^= 由MiaoBinderProcessor生成，请勿修改 =^^=\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(simpleName)
+                .append(" implements MiaoConfigBinder<").append(configType).append("> {\n")
+                .append("    private static final MiaoLogger logger = MiaoLogger.getLogger(MiaoConfigClazzManager.class);\n");
+        for (int i = 0; i < fields.size(); i++) {
+            sb.append("    private static final ConfigPath PATH_").append(i).append(" = ConfigPath.of(")
+                    .append(literal(fields.get(i).fullPath)).append(");\n");
+        }
+
+        sb.append("    private static final ConfigPath[] PATHS = {");
+        for (int i = 0; i < fields.size(); i++) {
+            sb.append(i == 0 ? "" : ", ").append("PATH_").append(i);
+        }
+        sb.append("};\n")
+                .append("    private static final String[] FIELD_NAMES = {");
+        for (int i = 0; i < fields.size(); i++) {
+            sb.append(i == 0 ? "" : ", ").append(literal(fields.get(i).name));
+        }
+        sb.append("};\n");
+
+        sb.append("\n    @Override\n")
+                .append("    public void inject(").append(configType).append(" instance, Map<String, Object> configData) {\n")
+                .append("        for (int i = 0; i < PATHS.length; i++) {\n")
+                .append("            inject(instance, i, PathUtils.getValue(configData, PATHS[i]));\n")
+                .append("        }\n")
+                .append("    }\n");
+
+        sb.append("\n    @Override\n")
+                .append("    public String[] fieldNames() {\n")
+                .append("        return FIELD_NAMES.clone();\n")
+                .append("    }\n");
+
+        sb.append("\n    @Override\n")
+                .append("    public boolean inject(").append(configType).append(" instance, int index, Object value) {\n")
+                .append("        ConfigPath path = PATHS[index];\n")
+                .append("        if (value == null) {\n")
+                .append("            logger.warn(\"实例[{}]的配置路径[{}]不存在，字段[{}]使用默认值\", instance, path, FIELD_NAMES[index]);\n")
+                .append("            return false;\n")
+                .append("        }\n")
+                .append("        try {\n")
+                .append("            switch (index) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            FieldModel field = fields.get(i);
+            sb.append("                case ").append(i).append(":\n")
+                    .append("                    ").append(field.write("(" + field.castType + ") TypeConverter.convertValue(value, "
+                            + field.rawType + ".class, true)")).append(";\n")
+                    .append("                    return true;\n");
+        }
+        sb.append("                default:\n")
+                .append("                    return false;\n")
+                .append("            }\n")
+                .append("        } catch (Exception e) {\n")
+                .append("            logger.warn(\"设置{}字段错误，使用默认值: {}\", FIELD_NAMES[index]")
+                .append(", new MiaoConfigSetException(e.getMessage(), instance.toString()).getMessage());\n")
+                .append("            return false;\n")
+                .append("        }\n")
+                .append("    }\n");
+
+        sb.append("\n    @Override\n")
+                .append("    public Map<String, Object> extract(").append(configType)
+                .append(" instance, boolean excludeDisposable) {\n")
+                .append("        Map<String, Object> resultMap = new HashMap<>();\n");
+        for (int i = 0; i < fields.size(); i++) {
+            FieldModel field = fields.get(i);
+            String put = "resultMap.put(PATH_" + i + ".getPath(), " + field.read() + ");\n";
+            if (field.disposable) {
+                sb.append("        if (!excludeDisposable) {\n            ").append(put).append("        }\n");
+            } else {
+                sb.append("        ").append(put);
+            }
+        }
+        sb.append("        return resultMap;\n")
+                .append("    }\n")
+                .append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, typeElement).openWriter()) {
+            writer.write(sb.toString());
+        }
+    }
+
+    //递归处理当前类和父类，只保留带注解的字段，子类覆盖父类
+    private Map<String, VariableElement> collectFields(TypeElement typeElement) {
+        Map<String, VariableElement> fieldMap = new LinkedHashMap<>();
+        TypeElement current = typeElement;
+        while (current != null && !current.getQualifiedName().contentEquals(Object.class.getName())) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                String name = field.getSimpleName().toString();
+                if (field.getAnnotation(MiaoValue.class) != null && !fieldMap.containsKey(name)) {
+                    fieldMap.put(name, field);
+                }
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return fieldMap;
+    }
+
+    private FieldModel buildField(TypeElement typeElement, VariableElement field, String packageName, String mainPath) {
+        MiaoValue miaoValue = field.getAnnotation(MiaoValue.class);
+        FieldModel model = new FieldModel();
+        model.name = field.getSimpleName().toString();
+        String subPath = miaoValue.path().trim().isEmpty() ? model.name : miaoValue.path();
+        model.fullPath = mainPath.isEmpty() ? subPath : mainPath + "." + subPath;
+        model.disposable = miaoValue.disposable() == MiaoIsEnable.ENABLE;
+
+        TypeMirror type = field.asType();
+        model.rawType = processingEnv.getTypeUtils().erasure(type).toString();
+        model.castType = type.getKind().isPrimitive()
+                ? processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString()
+                : model.rawType;
+
+        if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.FINAL)) {
+            note(field, "static/final字段无法生成绑定器");
+            return null;
+        }
+        if (isAccessible(field, packageName)) {
+            model.direct = true;
+            return model;
+        }
+        //无法直接访问时使用getter/setter
+        String capitalized = Character.toUpperCase(model.name.charAt(0)) + model.name.substring(1);
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(typeElement))) {
+            if (!isAccessible(method, packageName) || method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            String methodName = method.getSimpleName().toString();
+            if (method.getParameters().size() == 1 && methodName.equals("set" + capitalized)
+                    && processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), type)) {
+                model.setter = methodName;
+            } else if (method.getParameters().isEmpty()
+                    && (methodName.equals("get" + capitalized) || methodName.equals("is" + capitalized))
+                    && processingEnv.getTypeUtils().isSameType(method.getReturnType(), type)) {
+                model.getter = methodName;
+            }
+        }
+        if (model.setter == null || model.getter == null) {
+            note(field, "字段" + model.name + "无法直接访问且缺少getter/setter，跳过生成绑定器");
+            return null;
+        }
+        return model;
+    }
+
+    private boolean isAccessible(Element element, String packageName) {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        //包级和protected成员只有同包才能访问
+        return getPackage(element).getQualifiedName().contentEquals(packageName);
+    }
+
+    private PackageElement getPackage(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element);
+    }
+
+    private void note(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+    }
+
+    private static String literal(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * 生成代码所需的字段信息
+     */
+    private static final class FieldModel {
+        String name;
+        String fullPath;
+        boolean disposable;
+        //擦除泛型后的类型，用于.class
+        String rawType;
+        //强转类型，基本类型使用包装类
+        String castType;
+        boolean direct;
+        String getter;
+        String setter;
+
+        String write(String expression) {
+            return direct ? "instance." + name + " = " + expression : "instance." + setter + "(" + expression + ")";
+        }
+
+        String read() {
+            return direct ? "instance." + name : "instance." + getter + "()";
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.tcddm.miaoconfig;
+
+import com.tcddm.miaoconfig.annotation.MiaoConfig;
+import com.tcddm.miaoconfig.annotation.MiaoValue;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class MiaoConfigClazzManagerTest {
+
+    @MiaoConfig(configName = "containerTest")
+    public static class ContainerConfig {
+        @MiaoValue
+        public HashMap<String, Object> hashMap;
+        @MiaoValue
+        public LinkedHashMap<String, Object> linkedHashMap;
+        @MiaoValue
+        public ArrayList<Object> arrayList;
+        @MiaoValue
+        public HashSet<Object> hashSet;
+    }
+
+    @MiaoConfig(configName = "reloadTest")
+    public static class ReloadConfig {
+        @MiaoValue
+        public int a;
+        @MiaoValue
+        public int b;
+    }
+
+    @MiaoConfig(configName = "reloadUntouchedTest")
+    public static class UntouchedConfig {
+        @MiaoValue
+        public int c;
+    }
+
+    private static Path writeConfig(String name, String json) throws Exception {
+        Path path = Files.createTempDirectory("miao").resolve(name + ".json");
+        Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+        MiaoConfigFactory.getConfigFileManager().addConfigFile(name, path);
+        return path;
+    }
+
+    //具体容器类型的字段也能注入快照中的只读容器，保存时不会把对象写成null
+    @Test
+    public void injectsConcreteContainerFields() throws Exception {
+        Path path = writeConfig("containerTest",
+                "{\"hashMap\":{\"k\":1},\"linkedHashMap\":{\"a\":{\"b\":2}},\"arrayList\":[1,2],\"hashSet\":[\"x\",\"y\"]}");
+        MiaoConfigClazzManager<ContainerConfig> manager = new MiaoConfigClazzManager<>();
+        ContainerConfig config = new ContainerConfig();
+        manager.load(config);
+
+        assertNotNull(config.hashMap);
+        assertEquals(1, config.hashMap.get("k"));
+        assertNotNull(config.linkedHashMap);
+        assertEquals(2, ((Map<?, ?>) config.linkedHashMap.get("a")).get("b"));
+        assertEquals(Arrays.asList(1, 2), config.arrayList);
+        assertEquals(new HashSet<Object>(Arrays.asList("x", "y")), config.hashSet);
+
+        //注入的是可修改的副本，修改后保存
+        config.hashMap.put("k2", 3);
+        config.arrayList.add(3);
+        manager.saveConfig(config);
+
+        Map<String, Object> saved = MiaoConfigFileManager.getConfigData(path);
+        assertEquals(1, ((Map<?, ?>) saved.get("hashMap")).get("k"));
+        assertEquals(3, ((Map<?, ?>) saved.get("hashMap")).get("k2"));
+        assertEquals(2, ((Map<?, ?>) ((Map<?, ?>) saved.get("linkedHashMap")).get("a")).get("b"));
+        assertEquals(Arrays.asList(1, 2, 3), saved.get("arrayList"));
+        assertTrue(((List<?>) saved.get("hashSet")).containsAll(Arrays.asList("x", "y")));
+    }
+
+    //重载时只重新注入变化的字段，文件没有变化的实例不重新注入
+    @Test
+    public void reloadAllInjectsOnlyChangedPaths() throws Exception {
+        Path path = writeConfig("reloadTest", "{\"a\":1,\"b\":2}");
+        writeConfig("reloadUntouchedTest", "{\"c\":3}");
+        MiaoConfigClazzManager<Object> manager = new MiaoConfigClazzManager<>();
+        ReloadConfig config = new ReloadConfig();
+        UntouchedConfig untouched = new UntouchedConfig();
+        manager.load(config);
+        manager.load(untouched);
+        assertEquals(1, config.a);
+        assertEquals(3, untouched.c);
+
+        //未保存的本地修改，对应的路径没有变化时保留
+        config.b = 20;
+        untouched.c = 30;
+        Files.write(path, "{\"a\":10,\"b\":2,\"pad\":0}".getBytes(StandardCharsets.UTF_8));
+        manager.reloadAllConfig();
+
+        assertEquals(10, config.a);
+        assertEquals(20, config.b);
+        assertEquals(30, untouched.c);
+    }
+}
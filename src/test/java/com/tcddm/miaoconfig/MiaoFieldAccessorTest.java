@@ -0,0 +1,54 @@
+package com.tcddm.miaoconfig;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MiaoFieldAccessorTest {
+
+    public static class Primitives {
+        public int i;
+        public long l;
+        public double d;
+        public short s;
+        public boolean b;
+        public String str;
+    }
+
+    private static MiaoFieldAccessor accessor(String name) throws Exception {
+        java.lang.reflect.Field field = Primitives.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return MiaoFieldAccessor.of(field);
+    }
+
+    //包装类型和可以无损放宽的整数直接写入基本类型字段
+    @Test
+    public void setsPrimitivesWithoutConversion() throws Exception {
+        Primitives target = new Primitives();
+        assertTrue(accessor("i").setPrimitive(target, 7));
+        assertTrue(accessor("l").setPrimitive(target, 8));
+        assertTrue(accessor("d").setPrimitive(target, 9L));
+        assertTrue(accessor("s").setPrimitive(target, (short) 10));
+        assertTrue(accessor("b").setPrimitive(target, Boolean.TRUE));
+        assertEquals(7, target.i);
+        assertEquals(8L, target.l);
+        assertEquals(9.0, target.d, 0.0);
+        assertEquals(10, target.s);
+        assertTrue(target.b);
+    }
+
+    //需要解析或可能丢失精度的值交给TypeConverter
+    @Test
+    public void leavesOtherValuesToTypeConverter() throws Exception {
+        Primitives target = new Primitives();
+        assertFalse(accessor("i").setPrimitive(target, 1L << 40));
+        assertFalse(accessor("i").setPrimitive(target, 1.5));
+        assertFalse(accessor("i").setPrimitive(target, "7"));
+        assertFalse(accessor("s").setPrimitive(target, 7));
+        assertFalse(accessor("str").setPrimitive(target, 7));
+        assertEquals(0, target.i);
+        assertEquals(0, target.s);
+    }
+}
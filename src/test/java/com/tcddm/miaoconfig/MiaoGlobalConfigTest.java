@@ -0,0 +1,73 @@
+package com.tcddm.miaoconfig;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MiaoGlobalConfigTest {
+
+    //修改延迟加载的配置文件，同时在另一个线程注册句柄，不能死锁
+    @Test(timeout = 30000)
+    public void setValueWhileRegisteringKeyDoesNotDeadlock() throws Exception {
+        Path dir = Files.createTempDirectory("miao");
+        for (int i = 0; i < 200; i++) {
+            Path path = dir.resolve("lazy" + i + ".json");
+            Files.write(path, "{\"k7\":7}".getBytes(StandardCharsets.UTF_8));
+            MiaoConfigFileManager.MiaoConfigFile file = new MiaoConfigFileManager.MiaoConfigFile(path);
+            MiaoGlobalConfig globalConfig = new MiaoGlobalConfig(file);
+            CountDownLatch start = new CountDownLatch(1);
+            MiaoGlobalConfig.IntKey[] key = new MiaoGlobalConfig.IntKey[1];
+            Thread writer = new Thread(() -> {
+                await(start);
+                file.setValue("k5", 1);
+            });
+            Thread register = new Thread(() -> {
+                await(start);
+                key[0] = globalConfig.intKey("k7", 0);
+            });
+            writer.setDaemon(true);
+            register.setDaemon(true);
+            writer.start();
+            register.start();
+            start.countDown();
+            writer.join(5000);
+            register.join(5000);
+            assertNull("死锁的线程", ManagementFactory.getThreadMXBean().findMonitorDeadlockedThreads());
+            assertEquals(7, key[0].get());
+            assertEquals(1, file.getValue("k5"));
+        }
+    }
+
+    //修改getList/getMap返回的容器，不影响之后读取的值
+    @Test
+    @SuppressWarnings("unchecked")
+    public void returnedContainersAreNotShared() throws Exception {
+        Path path = Files.createTempDirectory("miao").resolve("shared.json");
+        Files.write(path, "{\"db\":{\"tags\":[\"a\"],\"opts\":{\"k\":1}}}".getBytes(StandardCharsets.UTF_8));
+        MiaoGlobalConfig globalConfig = new MiaoGlobalConfig(new MiaoConfigFileManager.MiaoConfigFile(path));
+
+        ((List<Object>) globalConfig.getList("db.tags")).add("POISON");
+        ((Map<String, Object>) globalConfig.get("db.opts", null, Map.class)).put("k", "POISON");
+
+        assertEquals(Arrays.asList("a"), globalConfig.getList("db.tags"));
+        assertEquals(1, globalConfig.get("db.opts", null, Map.class).get("k"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}